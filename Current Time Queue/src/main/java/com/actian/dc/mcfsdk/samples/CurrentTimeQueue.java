@@ -24,17 +24,23 @@ import com.pervasive.cosmos.component.util.QueueComponentBase;
 import com.pervasive.cosmos.messaging.Message;
 import com.pervasive.cosmos.messaging.TextMessage;
 import com.pervasive.cosmos.util.LogLevel;
-import java.sql.Date;
-import java.text.SimpleDateFormat;
-import java.util.TimeZone;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 
 
 /**
  * Simple queue component which returns the current 
  * time in the requested timezone when the getMessage
  * action is called.
+ * <p>
+ * The component keeps no per-call state in fields and the formatter is
+ * immutable, so one instance may serve several process threads at once.
  */
 public class CurrentTimeQueue extends QueueComponentBase {
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss");
     
     /**
      * Populate the Message parameter with the current formatted time in the
@@ -67,7 +73,7 @@ public class CurrentTimeQueue extends QueueComponentBase {
         
         try
         {
-            Date now = new Date(System.currentTimeMillis());
+            Instant now = Instant.now();
             message.setText(getFormattedTime(now, hoursOffset, minutesOffset));
         }
         catch( Exception cEx )
@@ -82,17 +88,16 @@ public class CurrentTimeQueue extends QueueComponentBase {
 	/**
 	 * Static method to return the GMT time as a string
 	 */
-	private String getFormattedTime(Date time, int hourOffset, int minuteOffset) {
+	private static String getFormattedTime(Instant time, int hourOffset, int minuteOffset) {
         if (hourOffset > 12 || hourOffset < -12) {
             throw new IllegalArgumentException("Hours offset must be between -12 and 12");
         }
         if (minuteOffset < 0 || minuteOffset > 59) {
             throw new IllegalArgumentException("Minutes offset must be between 0 and 59");
         }
-        String tzString = String.format("GMT%+02d%02d", hourOffset, minuteOffset);
-		TimeZone tz = TimeZone.getTimeZone(tzString);
-		SimpleDateFormat dfGMT = new SimpleDateFormat("MM/dd/yyyy HH:mm:ss");
-		dfGMT.setTimeZone(tz);		
-		return dfGMT.format(time);
+        // the minutes offset takes the sign of the hours offset
+        ZoneOffset offset = ZoneOffset.ofHoursMinutes(hourOffset,
+                hourOffset < 0 ? -minuteOffset : minuteOffset);
+		return TIME_FORMAT.format(time.atOffset(offset));
 	} 
 }
@@ -0,0 +1,67 @@
+/*
+ * CurrentTimeQueueConcurrencyTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Calls getMessage on one shared queue from several threads and checks
+ * that every message holds the current time at the configured offset.
+ */
+public class CurrentTimeQueueConcurrencyTest
+{
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss");
+
+    @Test
+    public void formatsTheCurrentTimeFromAllThreads() throws Exception
+    {
+        StubEnvironment env = new StubEnvironment()
+                .option("hoursOffset", "-5")
+                .option("minutesOffset", "30");
+        CurrentTimeQueue queue = new CurrentTimeQueue();
+        queue.setEnvironment(env.environment());
+        ZoneOffset offset = ZoneOffset.ofHoursMinutes(-5, -30);
+
+        List<String> results = ConcurrencyHarness.verify("CurrentTimeQueue", 20000, i -> {
+            Instant before = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+            TextMessage msg = StubMessage.create();
+            int rc = queue.getMessage(msg, null);
+            Instant after = Instant.now();
+
+            Instant time = LocalDateTime.parse(msg.getText(), TIME_FORMAT).toInstant(offset);
+            boolean inRange = !time.isBefore(before) && !time.isAfter(after);
+            return rc + " " + (inRange ? "in range" : msg.getText() + " not in [" + before + ", " + after + "]");
+        });
+
+        for (String result : results) {
+            assertEquals("0 in range", result);
+        }
+        assertTrue(env.errors().isEmpty(), env.errors().toString());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * FieldSplitInvoker.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import com.pervasive.cosmos.CosmosException;
+import com.pervasive.cosmos.component.Environment;
+import com.pervasive.cosmos.component.util.ErrorCode;
+import com.pervasive.cosmos.component.util.InvokerComponentBase;
+import com.pervasive.cosmos.messaging.Message;
+import com.pervasive.cosmos.messaging.TextMessage;
+import com.pervasive.cosmos.util.LogLevel;
+import java.math.BigDecimal;
+
+/**
+ * Sample invoker component which splits a structured source message body,
+ * either key=value lines or a JSON object, into typed properties of the
+ * target message in a single pass.
+ * <p>
+ * The body is parsed in place and all parse state is local to the call,
+ * so one instance may serve several process threads at once.
+ */
+public class FieldSplitInvoker extends InvokerComponentBase
+{
+    public static final String FORMAT_OPTION = "format";
+    public static final String PROPERTY_PREFIX_OPTION = "propertyPrefix";
+    public static final String MAX_PROPERTIES_OPTION = "maxProperties";
+    public static final String DECIMAL_FRACTIONS_OPTION = "decimalFractions";
+
+    static final String FORMAT_AUTO = "auto";
+    static final String FORMAT_PROPERTIES = "properties";
+    static final String FORMAT_JSON = "json";
+    static final int MAX_PROPERTIES_DEFAULT = 1000;
+
+    /**
+     * components are required to provide a null constructor
+     */
+    public FieldSplitInvoker()
+    {
+    }
+
+    /**
+     * Parses the body of the source message and sets one target property
+     * per field.
+     *
+     * @param source Source Message
+     * @param target Target Message
+     * @return ErrorCode int value. Successful return is 0 (ERR_OK).
+     */
+    @Override
+    public int execute(Message source, Message target)
+    {
+        int rc = ErrorCode.ERR_OK.getValue();
+        Environment env = getEnvironment();
+        try
+        {
+            if (!(source instanceof TextMessage)) {
+                return rc;
+            }
+            String body = ((TextMessage) source).getText();
+            if (body == null || body.length() == 0) {
+                return rc;
+            }
+
+            String maxStr = env.getOption(MAX_PROPERTIES_OPTION);
+            int maxProperties = maxStr != null && maxStr.trim().length() > 0 ?
+                    Integer.parseInt(maxStr.trim()) : MAX_PROPERTIES_DEFAULT;
+            boolean decimalFractions = Boolean.parseBoolean(env.getOption(DECIMAL_FRACTIONS_OPTION));
+            String prefix = env.getOption(PROPERTY_PREFIX_OPTION);
+
+            TypedFieldParser parser = new TypedFieldParser(
+                    new PropertySink(target, prefix), maxProperties, decimalFractions);
+            if (isJson(env.getOption(FORMAT_OPTION), body)) {
+                parser.parseJson(body);
+            } else {
+                parser.parseProperties(body);
+            }
+
+            if (parser.truncated()) {
+                env.logMessage(LogLevel.LT_WARN, ErrorCode.ERR_OK,
+                        "Source message has more than " + maxProperties +
+                        " fields. The remaining fields were ignored.");
+            }
+        }
+        catch( CosmosException | IllegalArgumentException exc )
+        {
+            env.setError(
+                    LogLevel.LT_WARN,
+                    ErrorCode.ERR_INVALID,
+                    true,
+                    "Exception " + exc.toString() + " occurred while attempting " +
+                    "to split the message body into properties.");
+            rc = ErrorCode.ERR_INVALID.getValue();
+        }
+
+        return rc;
+    }
+
+    private static boolean isJson(String format, String body)
+    {
+        if (FORMAT_JSON.equalsIgnoreCase(format)) {
+            return true;
+        }
+        if (FORMAT_PROPERTIES.equalsIgnoreCase(format)) {
+            return false;
+        }
+        // auto: a body starting with '{' is treated as JSON
+        for (int i = 0; i < body.length(); i++) {
+            if (!Character.isWhitespace(body.charAt(i))) {
+                return body.charAt(i) == '{';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets each parsed field as a typed property of the target message.
+     */
+    private static final class PropertySink implements TypedFieldParser.FieldSink
+    {
+        private final Message target;
+        private final String prefix;
+
+        PropertySink(Message target, String prefix)
+        {
+            this.target = target;
+            this.prefix = prefix != null && prefix.length() > 0 ? prefix : null;
+        }
+
+        private String name(String field)
+        {
+            return prefix == null ? field : prefix + field;
+        }
+
+        @Override
+        public void intField(String name, int value) throws CosmosException
+        {
+            target.setProperty(name(name), value);
+        }
+
+        @Override
+        public void longField(String name, long value) throws CosmosException
+        {
+            target.setProperty(name(name), value);
+        }
+
+        @Override
+        public void doubleField(String name, double value) throws CosmosException
+        {
+            target.setProperty(name(name), value);
+        }
+
+        @Override
+        public void decimalField(String name, BigDecimal value) throws CosmosException
+        {
+            target.setProperty(name(name), value);
+        }
+
+        @Override
+        public void booleanField(String name, boolean value) throws CosmosException
+        {
+            target.setProperty(name(name), value);
+        }
+
+        @Override
+        public void stringField(String name, String value) throws CosmosException
+        {
+            target.setProperty(name(name), value);
+        }
+    }
+}
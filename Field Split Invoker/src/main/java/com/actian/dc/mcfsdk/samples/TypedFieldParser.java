@@ -0,0 +1,597 @@
+/*
+ * TypedFieldParser.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import com.pervasive.cosmos.CosmosException;
+import java.math.BigDecimal;
+
+/**
+ * Single pass parser which turns key=value lines or a JSON object into
+ * typed fields.
+ * <p>
+ * Values are typed from their text: true and false become booleans, whole
+ * numbers become int or long (or decimal if they do not fit in a long),
+ * numbers with a fraction or exponent become double (or decimal when
+ * requested, or when they are out of the range of a double), and anything
+ * else is a string.  Whole numbers with a leading zero, such as zip
+ * codes, are kept as strings.  The text is read in place, without copying
+ * it; a String is only created for field names, string values, decimals
+ * and the rare double that needs full rounding.
+ * <p>
+ * Nested JSON objects are flattened into dotted names.  JSON arrays are
+ * reported as a string holding their JSON text, and JSON nulls are
+ * skipped.
+ * <p>
+ * Instances hold per-parse state and must not be shared between threads.
+ */
+final class TypedFieldParser
+{
+    /**
+     * Receives the fields found by the parser.
+     */
+    interface FieldSink
+    {
+        void intField(String name, int value) throws CosmosException;
+
+        void longField(String name, long value) throws CosmosException;
+
+        void doubleField(String name, double value) throws CosmosException;
+
+        void decimalField(String name, BigDecimal value) throws CosmosException;
+
+        void booleanField(String name, boolean value) throws CosmosException;
+
+        void stringField(String name, String value) throws CosmosException;
+    }
+
+    /** Largest mantissa that a double represents exactly */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final FieldSink sink;
+    private final int maxFields;
+    private final boolean decimalFractions;
+
+    private CharSequence text;
+    private int end;
+    private int pos;
+    private int count;
+    private boolean truncated;
+
+    /**
+     * @param sink receives the parsed fields
+     * @param maxFields parsing stops after this many fields
+     * @param decimalFractions report numbers with a fraction or exponent as
+     *                         decimal rather than double
+     */
+    TypedFieldParser(FieldSink sink, int maxFields, boolean decimalFractions)
+    {
+        this.sink = sink;
+        this.maxFields = maxFields;
+        this.decimalFractions = decimalFractions;
+    }
+
+    /**
+     * Returns the number of fields reported by the last parse.
+     */
+    int fieldCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns true if the last parse stopped at the field limit.
+     */
+    boolean truncated()
+    {
+        return truncated;
+    }
+
+    /**
+     * Parses key=value lines.  Blank lines and lines starting with # are
+     * ignored, as are lines without an equals sign.
+     */
+    void parseProperties(CharSequence chars) throws CosmosException
+    {
+        reset(chars);
+        while (pos < end && !truncated) {
+            int lineEnd = pos;
+            while (lineEnd < end && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int start = skipSpace(pos, lineEnd);
+            if (start < lineEnd && text.charAt(start) != '#') {
+                int eq = start;
+                while (eq < lineEnd && text.charAt(eq) != '=') {
+                    eq++;
+                }
+                if (eq < lineEnd) {
+                    int keyEnd = trimEnd(start, eq);
+                    if (keyEnd > start) {
+                        int valueStart = skipSpace(eq + 1, lineEnd);
+                        int valueEnd = trimEnd(valueStart, lineEnd);
+                        scalar(text.subSequence(start, keyEnd).toString(), valueStart, valueEnd, true);
+                    }
+                }
+            }
+            pos = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Parses a JSON object.
+     * @throws IllegalArgumentException if the text is not a JSON object
+     */
+    void parseJson(CharSequence chars) throws CosmosException
+    {
+        reset(chars);
+        pos = skipSpace(pos, end);
+        object("");
+        if (!truncated && skipSpace(pos, end) < end) {
+            throw error("Unexpected text after JSON object");
+        }
+    }
+
+    private void reset(CharSequence chars)
+    {
+        text = chars;
+        end = chars.length();
+        pos = 0;
+        count = 0;
+        truncated = false;
+    }
+
+    private void object(String prefix) throws CosmosException
+    {
+        expect('{');
+        pos = skipSpace(pos, end);
+        if (pos < end && text.charAt(pos) == '}') {
+            pos++;
+            return;
+        }
+        while (!truncated) {
+            pos = skipSpace(pos, end);
+            String name = prefix.isEmpty() ? jsonString() : prefix + jsonString();
+            pos = skipSpace(pos, end);
+            expect(':');
+            pos = skipSpace(pos, end);
+            value(name);
+            if (truncated) {
+                return;
+            }
+            pos = skipSpace(pos, end);
+            if (pos < end && text.charAt(pos) == ',') {
+                pos++;
+            } else {
+                expect('}');
+                return;
+            }
+        }
+    }
+
+    private void value(String name) throws CosmosException
+    {
+        if (pos >= end) {
+            throw error("Expected a value");
+        }
+        char ch = text.charAt(pos);
+        if (ch == '{') {
+            object(name + '.');
+        } else if (ch == '[') {
+            int start = pos;
+            skipArray();
+            emitString(name, text.subSequence(start, pos).toString());
+        } else if (ch == '"') {
+            emitString(name, jsonString());
+        } else if (matches("null")) {
+            pos += 4;
+        } else {
+            int start = pos;
+            while (pos < end && text.charAt(pos) != ',' && text.charAt(pos) != '}'
+                    && !Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            if (!scalar(name, start, pos, false)) {
+                throw error("Invalid JSON value");
+            }
+        }
+    }
+
+    /**
+     * Reports a value typed from its text.  A value which is not a boolean
+     * or number is reported as a string if stringFallback is set, otherwise
+     * it is not reported and false is returned.
+     */
+    private boolean scalar(String name, int start, int stop, boolean stringFallback)
+            throws CosmosException
+    {
+        int len = stop - start;
+        if (len == 4 && regionMatches(start, "true")) {
+            emitBoolean(name, true);
+            return true;
+        }
+        if (len == 5 && regionMatches(start, "false")) {
+            emitBoolean(name, false);
+            return true;
+        }
+        if (number(name, start, stop)) {
+            return true;
+        }
+        if (stringFallback) {
+            emitString(name, text.subSequence(start, stop).toString());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reports the value if it is a number, without creating a String
+     * unless it is a decimal or a double that needs full rounding.
+     */
+    private boolean number(String name, int start, int stop) throws CosmosException
+    {
+        int i = start;
+        boolean negative = i < stop && text.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        int intStart = i;
+        while (i < stop && isDigit(text.charAt(i))) {
+            i++;
+        }
+        int intDigits = i - intStart;
+        if (intDigits == 0 || (intDigits > 1 && text.charAt(intStart) == '0')) {
+            return false;
+        }
+        int fracDigits = 0;
+        if (i < stop && text.charAt(i) == '.') {
+            i++;
+            int fracStart = i;
+            while (i < stop && isDigit(text.charAt(i))) {
+                i++;
+            }
+            fracDigits = i - fracStart;
+            if (fracDigits == 0) {
+                return false;
+            }
+        }
+        boolean hasExponent = false;
+        int exponent = 0;
+        if (i < stop && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            hasExponent = true;
+            i++;
+            boolean negativeExponent = false;
+            if (i < stop && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            int expStart = i;
+            while (i < stop && isDigit(text.charAt(i))) {
+                if (exponent < 100000) {
+                    exponent = exponent * 10 + (text.charAt(i) - '0');
+                }
+                i++;
+            }
+            if (i == expStart) {
+                return false;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (i != stop) {
+            return false;
+        }
+
+        if (fracDigits == 0 && !hasExponent) {
+            if (intDigits <= 18) {
+                long value = 0;
+                for (int j = intStart; j < stop; j++) {
+                    value = value * 10 + (text.charAt(j) - '0');
+                }
+                if (negative) {
+                    value = -value;
+                }
+                if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    emitInt(name, (int) value);
+                } else {
+                    emitLong(name, value);
+                }
+                return true;
+            }
+            long value = 0;
+            boolean overflow = false;
+            for (int j = intStart; j < stop && !overflow; j++) {
+                int digit = text.charAt(j) - '0';
+                // accumulate as a negative number so Long.MIN_VALUE fits
+                if (value < (Long.MIN_VALUE + digit) / 10) {
+                    overflow = true;
+                } else {
+                    value = value * 10 - digit;
+                }
+            }
+            if (!overflow && (negative || value != Long.MIN_VALUE)) {
+                emitLong(name, negative ? value : -value);
+            } else {
+                emitDecimal(name, start, stop);
+            }
+            return true;
+        }
+
+        if (decimalFractions) {
+            emitDecimal(name, start, stop);
+            return true;
+        }
+        double value = parseDouble(start, stop, intStart, intDigits, fracDigits, exponent, negative);
+        if (Double.isNaN(value)) {
+            // out of the range of a double
+            emitDecimal(name, start, stop);
+        } else {
+            emitDouble(name, value);
+        }
+        return true;
+    }
+
+    /**
+     * Uses exact long arithmetic when the significant digits fit in a
+     * double's mantissa and the power of ten is exactly representable,
+     * otherwise falls back to Double.parseDouble.  Returns NaN if the
+     * value would overflow to infinity or underflow to zero.
+     */
+    private double parseDouble(int start, int stop, int intStart, int intDigits,
+            int fracDigits, int exponent, boolean negative)
+    {
+        long mantissa = 0;
+        int digits = 0;
+        int digitsEnd = intStart + intDigits + (fracDigits > 0 ? fracDigits + 1 : 0);
+        for (int i = intStart; i < digitsEnd; i++) {
+            char ch = text.charAt(i);
+            if (ch == '.') {
+                continue;
+            }
+            if (mantissa != 0 || ch != '0') {
+                if (++digits > 18) {
+                    break;
+                }
+            }
+            mantissa = mantissa * 10 + (ch - '0');
+        }
+        int scale = exponent - fracDigits;
+        if (digits <= 18 && mantissa <= MAX_EXACT_MANTISSA
+                && scale >= -22 && scale <= 22) {
+            double value = scale >= 0 ?
+                    mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+            return negative ? -value : value;
+        }
+        double value = Double.parseDouble(text.subSequence(start, stop).toString());
+        if (Double.isInfinite(value) || (value == 0 && mantissa != 0)) {
+            return Double.NaN;
+        }
+        return value;
+    }
+
+    private String jsonString()
+    {
+        expect('"');
+        int start = pos;
+        // fast path for strings without escapes
+        while (pos < end && text.charAt(pos) != '"' && text.charAt(pos) != '\\') {
+            pos++;
+        }
+        if (pos < end && text.charAt(pos) == '"') {
+            return text.subSequence(start, pos++).toString();
+        }
+        StringBuilder sb = new StringBuilder(pos - start + 16);
+        sb.append(text, start, pos);
+        while (pos < end) {
+            char ch = text.charAt(pos++);
+            if (ch == '"') {
+                return sb.toString();
+            }
+            if (ch != '\\') {
+                sb.append(ch);
+                continue;
+            }
+            if (pos >= end) {
+                break;
+            }
+            ch = text.charAt(pos++);
+            switch (ch) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > end) {
+                        throw error("Invalid unicode escape");
+                    }
+                    int code = 0;
+                    for (int j = 0; j < 4; j++) {
+                        int digit = Character.digit(text.charAt(pos++), 16);
+                        if (digit < 0) {
+                            throw error("Invalid unicode escape");
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    sb.append((char) code);
+                    break;
+                default:
+                    sb.append(ch);
+                    break;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void skipArray()
+    {
+        int depth = 0;
+        while (pos < end) {
+            char ch = text.charAt(pos++);
+            if (ch == '"') {
+                while (pos < end && text.charAt(pos) != '"') {
+                    if (text.charAt(pos) == '\\') {
+                        pos++;
+                    }
+                    pos++;
+                }
+                pos++;
+            } else if (ch == '[' || ch == '{') {
+                depth++;
+            } else if (ch == ']' || ch == '}') {
+                if (--depth == 0) {
+                    return;
+                }
+            }
+        }
+        throw error("Unterminated array");
+    }
+
+    private void emitInt(String name, int value) throws CosmosException
+    {
+        if (admit()) {
+            sink.intField(name, value);
+        }
+    }
+
+    private void emitLong(String name, long value) throws CosmosException
+    {
+        if (admit()) {
+            sink.longField(name, value);
+        }
+    }
+
+    private void emitDouble(String name, double value) throws CosmosException
+    {
+        if (admit()) {
+            sink.doubleField(name, value);
+        }
+    }
+
+    private void emitDecimal(String name, BigDecimal value) throws CosmosException
+    {
+        if (admit()) {
+            sink.decimalField(name, value);
+        }
+    }
+
+    /**
+     * Reports the text as a decimal, or as a string if its exponent is too
+     * large even for a BigDecimal.
+     */
+    private void emitDecimal(String name, int start, int stop) throws CosmosException
+    {
+        String value = text.subSequence(start, stop).toString();
+        BigDecimal decimal;
+        try {
+            decimal = new BigDecimal(value);
+        } catch (NumberFormatException ex) {
+            emitString(name, value);
+            return;
+        }
+        emitDecimal(name, decimal);
+    }
+
+    private void emitBoolean(String name, boolean value) throws CosmosException
+    {
+        if (admit()) {
+            sink.booleanField(name, value);
+        }
+    }
+
+    private void emitString(String name, String value) throws CosmosException
+    {
+        if (admit()) {
+            sink.stringField(name, value);
+        }
+    }
+
+    private boolean admit()
+    {
+        if (count >= maxFields) {
+            truncated = true;
+            return false;
+        }
+        count++;
+        return true;
+    }
+
+    private void expect(char ch)
+    {
+        if (pos >= end || text.charAt(pos) != ch) {
+            throw error("Expected '" + ch + "'");
+        }
+        pos++;
+    }
+
+    private boolean matches(String literal)
+    {
+        return pos + literal.length() <= end && regionMatches(pos, literal);
+    }
+
+    private boolean regionMatches(int start, String literal)
+    {
+        for (int i = 0; i < literal.length(); i++) {
+            if (text.charAt(start + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipSpace(int from, int stop)
+    {
+        while (from < stop && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimEnd(int start, int stop)
+    {
+        while (stop > start && Character.isWhitespace(text.charAt(stop - 1))) {
+            stop--;
+        }
+        return stop;
+    }
+
+    private IllegalArgumentException error(String msg)
+    {
+        return new IllegalArgumentException(msg + " at position " + pos + " of message body");
+    }
+
+    private static boolean isDigit(char ch)
+    {
+        return ch >= '0' && ch <= '9';
+    }
+}
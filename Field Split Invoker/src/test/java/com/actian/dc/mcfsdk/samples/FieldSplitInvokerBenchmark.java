@@ -0,0 +1,145 @@
+/*
+ * FieldSplitInvokerBenchmark.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Times the Field Split Invoker on bodies with thousands of fields.  Not
+ * part of the normal build; run it from the module directory with
+ * <pre>
+ *   mvn test -Dtest=FieldSplitInvokerBenchmark
+ * </pre>
+ * Each body is timed with the parser alone and with the invoker setting
+ * properties on a stub message, after a warm-up.
+ */
+public class FieldSplitInvokerBenchmark
+{
+    private static final int WARMUP = 300;
+    private static final int ITERATIONS = 300;
+
+    /**
+     * Sink which only checksums the fields, so that the parser can be
+     * timed without setting properties.
+     */
+    private static final class ChecksumSink implements TypedFieldParser.FieldSink
+    {
+        long checksum;
+
+        @Override
+        public void intField(String name, int value)
+        {
+            checksum += value;
+        }
+
+        @Override
+        public void longField(String name, long value)
+        {
+            checksum += value;
+        }
+
+        @Override
+        public void doubleField(String name, double value)
+        {
+            checksum += Double.doubleToRawLongBits(value);
+        }
+
+        @Override
+        public void decimalField(String name, BigDecimal value)
+        {
+            checksum += value.hashCode();
+        }
+
+        @Override
+        public void booleanField(String name, boolean value)
+        {
+            checksum += value ? 1 : 0;
+        }
+
+        @Override
+        public void stringField(String name, String value)
+        {
+            checksum += value.length();
+        }
+    }
+
+    @Test
+    public void splitProperties() throws Exception
+    {
+        measure("key=value", FieldSplitInvokerConcurrencyTest.propertiesBody(1, 1250), false);
+    }
+
+    @Test
+    public void splitJson() throws Exception
+    {
+        measure("JSON", FieldSplitInvokerConcurrencyTest.jsonBody(1, 1667), true);
+    }
+
+    private static void measure(String name, String body, boolean json) throws Exception
+    {
+        StubEnvironment env = new StubEnvironment()
+                .option(FieldSplitInvoker.MAX_PROPERTIES_OPTION, String.valueOf(Integer.MAX_VALUE));
+        FieldSplitInvoker invoker = new FieldSplitInvoker();
+        invoker.setEnvironment(env.environment());
+
+        ChecksumSink sink = new ChecksumSink();
+        TypedFieldParser parser = new TypedFieldParser(sink, Integer.MAX_VALUE, false);
+        int fields = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            parse(parser, body, json);
+            TextMessage target = StubMessage.create();
+            invoker.execute(StubMessage.create(body), target);
+            fields = target.getPropertyNames().length;
+        }
+        assertEquals(fields, parser.fieldCount());
+        assertFalse(parser.truncated());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parse(parser, body, json);
+        }
+        long parseNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            invoker.execute(StubMessage.create(body), StubMessage.create());
+        }
+        long invokeNanos = System.nanoTime() - start;
+
+        double perField = (double) ITERATIONS * fields;
+        System.out.printf("%s: %d fields, %d KB, %.0f ns/field parsing, %.0f ns/field"
+                + " with properties (checksum %x)%n",
+                name, fields, body.length() / 1024, parseNanos / perField,
+                invokeNanos / perField, sink.checksum);
+        assertEquals(0, env.errors().size(), env.errors().toString());
+    }
+
+    private static void parse(TypedFieldParser parser, String body, boolean json) throws Exception
+    {
+        if (json) {
+            parser.parseJson(body);
+        } else {
+            parser.parseProperties(body);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * FieldSplitInvokerConcurrencyTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Splits bodies of varying size and format with one shared invoker from
+ * several threads and checks the results against a single thread.
+ */
+public class FieldSplitInvokerConcurrencyTest
+{
+    static String propertiesBody(int index, int fields)
+    {
+        StringBuilder sb = new StringBuilder("# record ").append(index).append('\n');
+        for (int f = 0; f < fields; f++) {
+            sb.append("count").append(f).append('=').append(index + f).append('\n');
+            sb.append("price").append(f).append(" = ").append(index).append('.').append(f % 100).append('\n');
+            sb.append("zip").append(f).append('=').append("0").append(1000 + f).append('\n');
+            sb.append("flag").append(f).append('=').append(f % 2 == 0).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String jsonBody(int index, int fields)
+    {
+        StringBuilder sb = new StringBuilder("{\"id\":").append(index).append(",\"items\":{");
+        for (int f = 0; f < fields; f++) {
+            if (f > 0) {
+                sb.append(',');
+            }
+            sb.append("\"n").append(f).append("\":").append(9000000000L + index + f)
+                    .append(",\"x").append(f).append("\":").append(index).append("e-").append(f % 5)
+                    .append(",\"s").append(f).append("\":\"v\\t").append(f).append('"');
+        }
+        return sb.append("},\"tags\":[1,\"a\"],\"none\":null}").toString();
+    }
+
+    private static String split(FieldSplitInvoker invoker, String body) throws Exception
+    {
+        TextMessage source = StubMessage.create(body);
+        TextMessage target = StubMessage.create();
+        int rc = invoker.execute(source, target);
+        return rc + "\n" + StubMessage.describe(target);
+    }
+
+    @Test
+    public void splitsTheSameFromAllThreads() throws Exception
+    {
+        StubEnvironment env = new StubEnvironment();
+        FieldSplitInvoker invoker = new FieldSplitInvoker();
+        invoker.setEnvironment(env.environment());
+
+        List<String> results = ConcurrencyHarness.verify("FieldSplitInvoker", 4000, i -> {
+            // bodies of different sizes in both formats
+            int fields = 1 + (i * 7) % 50;
+            return split(invoker, i % 2 == 0 ? propertiesBody(i, fields) : jsonBody(i, fields));
+        });
+
+        assertTrue(results.get(0).startsWith("0\n"), results.get(0));
+        assertTrue(env.errors().isEmpty(), env.errors().toString());
+        assertTrue(env.messages().isEmpty(), env.messages().toString());
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * FieldSplitInvokerTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pervasive.cosmos.component.util.ErrorCode;
+import com.pervasive.cosmos.messaging.Message;
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how the Field Split Invoker types and names the fields it finds.
+ */
+public class FieldSplitInvokerTest
+{
+    private StubEnvironment env;
+    private FieldSplitInvoker invoker;
+
+    @BeforeEach
+    public void setUp()
+    {
+        env = new StubEnvironment();
+        invoker = new FieldSplitInvoker();
+        invoker.setEnvironment(env.environment());
+    }
+
+    private String split(String body) throws Exception
+    {
+        TextMessage target = StubMessage.create();
+        int rc = invoker.execute(StubMessage.create(body), target);
+        return rc + "\n" + StubMessage.describe(target);
+    }
+
+    @Test
+    public void typesValuesFromTheirText() throws Exception
+    {
+        assertEquals("0\n"
+                + "count0=3 (Integer)\n"
+                + "flag0=true (Boolean)\n"
+                + "price0=3.0 (Double)\n"
+                + "zip0=01000 (String)\n",
+                split(FieldSplitInvokerConcurrencyTest.propertiesBody(3, 1)));
+
+        assertEquals("0\n"
+                + "id=3 (Integer)\n"
+                + "items.n0=9000000003 (Long)\n"
+                + "items.s0=v\t0 (String)\n"
+                + "items.x0=3.0 (Double)\n"
+                + "tags=[1,\"a\"] (String)\n",
+                split(FieldSplitInvokerConcurrencyTest.jsonBody(3, 1)));
+    }
+
+    @Test
+    public void stopsAtTheFieldLimit() throws Exception
+    {
+        env.option(FieldSplitInvoker.MAX_PROPERTIES_OPTION, "3");
+
+        assertEquals("0\n"
+                + "count0=3 (Integer)\n"
+                + "price0=3.0 (Double)\n"
+                + "zip0=01000 (String)\n",
+                split(FieldSplitInvokerConcurrencyTest.propertiesBody(3, 2)));
+        assertEquals(1, env.messages().size());
+        assertTrue(env.messages().get(0).contains("more than 3 fields"), env.messages().get(0));
+    }
+
+    @Test
+    public void widensWholeNumbersThatDoNotFit() throws Exception
+    {
+        assertEquals("0\n"
+                + "big=12345678901234567890 (BigDecimal)\n"
+                + "max=9223372036854775807 (Long)\n"
+                + "min=-9223372036854775808 (Long)\n"
+                + "over=9223372036854775808 (BigDecimal)\n"
+                + "under=-9223372036854775809 (BigDecimal)\n",
+                split("big=12345678901234567890\n"
+                        + "max=9223372036854775807\n"
+                        + "min=-9223372036854775808\n"
+                        + "over=9223372036854775808\n"
+                        + "under=-9223372036854775809\n"));
+    }
+
+    @Test
+    public void reportsFractionsAsDecimalsWhenRequested() throws Exception
+    {
+        env.option(FieldSplitInvoker.DECIMAL_FRACTIONS_OPTION, "true");
+
+        assertEquals("0\n"
+                + "count=12 (Integer)\n"
+                + "exp=1E+3 (BigDecimal)\n"
+                + "price=12.50 (BigDecimal)\n",
+                split("price=12.50\nexp=1e3\ncount=12\n"));
+    }
+
+    @Test
+    public void reportsOutOfRangeDoublesAsDecimals() throws Exception
+    {
+        assertEquals("0\n"
+                + "high=1E+400 (BigDecimal)\n"
+                + "low=1E-400 (BigDecimal)\n"
+                + "negative=-2.5E+400 (BigDecimal)\n"
+                + "zero=0.0 (Double)\n",
+                split("high=1e400\nlow=1E-400\nnegative=-2.5e400\nzero=0.0e-400\n"));
+    }
+
+    @Test
+    public void unescapesJsonStrings() throws Exception
+    {
+        assertEquals("0\n"
+                + "k\"ey=a\"b\\c/d\n\u00e9\u20ac (String)\n"
+                + "plain=x (String)\n",
+                split("{\"k\\\"ey\": \"a\\\"b\\\\c\\/d\\n\\u00e9\\u20AC\", \"plain\": \"x\"}"));
+    }
+
+    @Test
+    public void rejectsMalformedJson() throws Exception
+    {
+        String[] bodies = {
+            "{\"a\":1,}",
+            "{\"a\":tru}",
+            "{\"a\":1} trailing",
+            "{\"a\":\"unterminated",
+            "{\"a\" 1}",
+            "{\"a\":\"\\u12\"}",
+        };
+        for (String body : bodies) {
+            setUp();
+            String result = split(body);
+            assertTrue(result.startsWith(ErrorCode.ERR_INVALID.getValue() + "\n"), body + ": " + result);
+            assertEquals(1, env.errors().size(), body);
+        }
+    }
+
+    @Test
+    public void fastPathDoublesMatchDoubleParseDouble() throws Exception
+    {
+        String[] edgeCases = {
+            "0.1", "-0.0", "1e22", "1e23", "9007199254740993.0",
+            "123456789012345678.5", "4.9e-324", "1.7976931348623157e308",
+        };
+        for (String value : edgeCases) {
+            assertDouble(value);
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder value = new StringBuilder();
+            value.append(random.nextInt(1000000)).append('.');
+            int fraction = 1 + random.nextInt(12);
+            for (int j = 0; j < fraction; j++) {
+                value.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextBoolean()) {
+                value.append('e').append(random.nextInt(40) - 20);
+            }
+            assertDouble(value.toString());
+        }
+    }
+
+    private void assertDouble(String value) throws Exception
+    {
+        TextMessage target = StubMessage.create();
+        invoker.execute(StubMessage.create("v=" + value), target);
+        assertEquals(Message.PROPERTY_TYPE_DOUBLE, target.getPropertyType("v"), value);
+        assertEquals(Double.doubleToLongBits(Double.parseDouble(value)),
+                Double.doubleToLongBits(target.getDoubleProperty("v")), value);
+    }
+}
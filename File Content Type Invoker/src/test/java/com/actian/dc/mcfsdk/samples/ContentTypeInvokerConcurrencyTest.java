@@ -0,0 +1,83 @@
+/*
+ * ContentTypeInvokerConcurrencyTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Probes the content type of temporary files with one shared invoker from
+ * several threads and checks the results against a single thread.
+ */
+public class ContentTypeInvokerConcurrencyTest
+{
+    private static final String[] NAMES = {
+        "notes.txt", "page.html", "data.xml", "image.png", "archive.bin",
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void probesTheSameFromAllThreads() throws Exception
+    {
+        for (String name : NAMES) {
+            Files.write(dir.resolve(name), ("contents of " + name).getBytes("UTF-8"));
+        }
+        // the filePath option is used when the message has no filePath property
+        StubEnvironment env = new StubEnvironment()
+                .option("filePath", dir.resolve(NAMES[0]).toString());
+        ContentTypeInvoker invoker = new ContentTypeInvoker();
+        invoker.setEnvironment(env.environment());
+
+        int tasks = 10000;
+        List<String> results = ConcurrencyHarness.verify("ContentTypeInvoker", tasks, i -> {
+            TextMessage source = StubMessage.create();
+            if (i % 10 == 9) {
+                source.setProperty("filePath", dir.resolve("missing-" + i).toString());
+            } else if (i % 10 != 0) {
+                source.setProperty("filePath", dir.resolve(NAMES[i % NAMES.length]).toString());
+            }
+            TextMessage target = StubMessage.create();
+            int rc = invoker.execute(source, target);
+            return rc + "\n" + StubMessage.describe(target);
+        });
+
+        for (int i = 0; i < tasks; i++) {
+            String result = results.get(i);
+            if (i % 10 == 9) {
+                assertEquals("0\n", result);
+            } else {
+                String name = i % 10 == 0 ? NAMES[0] : NAMES[i % NAMES.length];
+                assertTrue(result.startsWith("0\nContent-Type="), result);
+                assertTrue(result.contains("File=" + dir.resolve(name).toFile().getCanonicalPath()
+                        + " (String)\n"), result);
+            }
+        }
+        // each run reports every missing file once
+        assertEquals(ConcurrencyHarness.THREAD_COUNTS.length * tasks / 10, env.errors().size());
+        assertTrue(env.errors().get(0).contains("Unable to find source file"), env.errors().get(0));
+    }
+}
@@ -0,0 +1,622 @@
+/*
+ * FilterPredicate.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import com.pervasive.cosmos.CosmosException;
+import com.pervasive.cosmos.messaging.Message;
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled message filter expression.
+ * <p>
+ * The expression grammar is:
+ * <pre>
+ *   expr    := and ( "||" and )*
+ *   and     := unary ( "&amp;&amp;" unary )*
+ *   unary   := "!" unary | "(" expr ")" | test
+ *   test    := operand "~" string
+ *            | operand ( "==" | "!=" ) ( string | number )
+ *            | operand ( "&lt;" | "&lt;=" | "&gt;" | "&gt;=" ) number
+ *            | operand "in" "[" number "," number "]"
+ *   operand := "$body" | property name
+ * </pre>
+ * Strings are single or double quoted and may use a backslash to escape
+ * the quote character.  "~" is a regular expression search, "in" is an
+ * inclusive numeric range.  A test on a property that the message does
+ * not have, or on a value that is not numeric for a numeric test, is false.
+ * Numeric tests are exact: int, long and byte properties are compared as
+ * longs with whole number literals, decimal properties and numeric text
+ * are compared as decimals, and only double properties are compared as
+ * doubles.
+ * <p>
+ * Compiled predicates are immutable and are cached by expression text, so
+ * one instance may be evaluated concurrently from several threads.
+ */
+abstract class FilterPredicate
+{
+    static final String BODY_OPERAND = "$body";
+
+    private static final int MAX_CACHED = 256;
+    private static final ConcurrentHashMap<String, FilterPredicate> CACHE =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Returns the compiled predicate for the expression, compiling it
+     * only the first time it is seen.
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    static FilterPredicate compile(String expression)
+    {
+        FilterPredicate predicate = CACHE.get(expression);
+        if (predicate == null) {
+            predicate = new Parser(expression).parse();
+            if (CACHE.size() >= MAX_CACHED) {
+                CACHE.clear();
+            }
+            CACHE.putIfAbsent(expression, predicate);
+        }
+        return predicate;
+    }
+
+    abstract boolean test(Context ctx) throws CosmosException;
+
+    /**
+     * Per-evaluation state.  Message values are fetched on first use, and
+     * the groups of the first regular expression test in the branch that
+     * decided the result are kept.  A predicate that fails leaves the
+     * groups as they were before it was evaluated.
+     */
+    static final class Context
+    {
+        private final Message message;
+        private String body;
+        private boolean bodyFetched;
+        private Matcher groups;
+
+        Context(Message message)
+        {
+            this.message = message;
+        }
+
+        /**
+         * Returns the groups of the first regular expression test that
+         * contributed to a true result, or null if there was none.
+         */
+        Matcher groups()
+        {
+            return groups;
+        }
+
+        String text(String operand) throws CosmosException
+        {
+            if (BODY_OPERAND.equals(operand)) {
+                if (!bodyFetched) {
+                    body = message instanceof TextMessage ?
+                            ((TextMessage) message).getText() : null;
+                    bodyFetched = true;
+                }
+                return body;
+            }
+            switch (message.getPropertyType(operand)) {
+                case Message.PROPERTY_TYPE_STRING:
+                    return message.getStringProperty(operand);
+                case Message.PROPERTY_TYPE_INT:
+                    return String.valueOf(message.getIntProperty(operand));
+                case Message.PROPERTY_TYPE_LONG:
+                    return String.valueOf(message.getLongProperty(operand));
+                case Message.PROPERTY_TYPE_BOOLEAN:
+                    return String.valueOf(message.getBooleanProperty(operand));
+                case Message.PROPERTY_TYPE_DOUBLE:
+                    return String.valueOf(message.getDoubleProperty(operand));
+                case Message.PROPERTY_TYPE_DECIMAL:
+                    return String.valueOf(message.getDecimalProperty(operand));
+                case Message.PROPERTY_TYPE_BYTE:
+                    return String.valueOf(message.getByteProperty(operand));
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Returns the numeric value of the operand as a Long for int, long
+         * and byte properties, a Double for double properties and a
+         * BigDecimal otherwise, or null if it is missing or not numeric.
+         * Numeric properties are read without going through a String.
+         */
+        Number number(String operand) throws CosmosException
+        {
+            if (!BODY_OPERAND.equals(operand)) {
+                switch (message.getPropertyType(operand)) {
+                    case Message.PROPERTY_TYPE_INT:
+                        return (long) message.getIntProperty(operand);
+                    case Message.PROPERTY_TYPE_LONG:
+                        return message.getLongProperty(operand);
+                    case Message.PROPERTY_TYPE_DOUBLE:
+                        double d = message.getDoubleProperty(operand);
+                        return Double.isNaN(d) ? null : d;
+                    case Message.PROPERTY_TYPE_DECIMAL:
+                        return message.getDecimalProperty(operand);
+                    case Message.PROPERTY_TYPE_BYTE:
+                        return (long) message.getByteProperty(operand);
+                    default:
+                        break;
+                }
+            }
+            String value = text(operand);
+            if (value == null) {
+                return null;
+            }
+            value = value.trim();
+            try {
+                return new BigDecimal(value);
+            } catch (NumberFormatException ex) {
+                // Infinity and other forms only a double can hold
+            }
+            try {
+                double d = Double.parseDouble(value);
+                return Double.isNaN(d) ? null : d;
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Numeric literal of an expression, kept exactly.
+     */
+    private static final class NumberLiteral
+    {
+        private final BigDecimal decimal;
+        private final boolean whole;
+        private final long longValue;
+        private final double doubleValue;
+
+        NumberLiteral(BigDecimal decimal)
+        {
+            this.decimal = decimal;
+            long exact = 0;
+            boolean fits;
+            try {
+                exact = decimal.longValueExact();
+                fits = true;
+            } catch (ArithmeticException ex) {
+                fits = false;
+            }
+            this.whole = fits;
+            this.longValue = exact;
+            this.doubleValue = decimal.doubleValue();
+        }
+
+        /**
+         * Compares a value returned by {@link Context#number} with this
+         * literal, returning a negative number, zero or a positive number
+         * as the value is less than, equal to or greater than the literal.
+         */
+        int compareTo(Number value)
+        {
+            if (value instanceof Long) {
+                return whole ? Long.compare(value.longValue(), longValue)
+                        : BigDecimal.valueOf(value.longValue()).compareTo(decimal);
+            }
+            if (value instanceof Double) {
+                double d = value.doubleValue();
+                return d < doubleValue ? -1 : (d > doubleValue ? 1 : 0);
+            }
+            return ((BigDecimal) value).compareTo(decimal);
+        }
+    }
+
+    private static final class Or extends FilterPredicate
+    {
+        private final FilterPredicate left;
+        private final FilterPredicate right;
+
+        Or(FilterPredicate left, FilterPredicate right)
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(Context ctx) throws CosmosException
+        {
+            return left.test(ctx) || right.test(ctx);
+        }
+    }
+
+    private static final class And extends FilterPredicate
+    {
+        private final FilterPredicate left;
+        private final FilterPredicate right;
+
+        And(FilterPredicate left, FilterPredicate right)
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(Context ctx) throws CosmosException
+        {
+            Matcher groups = ctx.groups;
+            if (left.test(ctx) && right.test(ctx)) {
+                return true;
+            }
+            // the left side may have matched even though the whole failed
+            ctx.groups = groups;
+            return false;
+        }
+    }
+
+    private static final class Not extends FilterPredicate
+    {
+        private final FilterPredicate operand;
+
+        Not(FilterPredicate operand)
+        {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean test(Context ctx) throws CosmosException
+        {
+            Matcher groups = ctx.groups;
+            if (operand.test(ctx)) {
+                // a match inside a negation never decides a true result
+                ctx.groups = groups;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class RegexTest extends FilterPredicate
+    {
+        private final String operand;
+        private final Pattern pattern;
+
+        RegexTest(String operand, Pattern pattern)
+        {
+            this.operand = operand;
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean test(Context ctx) throws CosmosException
+        {
+            String value = ctx.text(operand);
+            if (value == null) {
+                return false;
+            }
+            // the matcher searches the value in place
+            Matcher matcher = pattern.matcher(value);
+            if (!matcher.find()) {
+                return false;
+            }
+            if (ctx.groups == null) {
+                ctx.groups = matcher;
+            }
+            return true;
+        }
+    }
+
+    private static final class EqualsTest extends FilterPredicate
+    {
+        private final String operand;
+        private final String expected;
+        private final boolean negate;
+
+        EqualsTest(String operand, String expected, boolean negate)
+        {
+            this.operand = operand;
+            this.expected = expected;
+            this.negate = negate;
+        }
+
+        @Override
+        boolean test(Context ctx) throws CosmosException
+        {
+            String value = ctx.text(operand);
+            if (value == null) {
+                return false;
+            }
+            return expected.equals(value) != negate;
+        }
+    }
+
+    private static final class NumericEqualsTest extends FilterPredicate
+    {
+        private final String operand;
+        private final NumberLiteral expected;
+        private final boolean negate;
+
+        NumericEqualsTest(String operand, NumberLiteral expected, boolean negate)
+        {
+            this.operand = operand;
+            this.expected = expected;
+            this.negate = negate;
+        }
+
+        @Override
+        boolean test(Context ctx) throws CosmosException
+        {
+            Number value = ctx.number(operand);
+            if (value == null) {
+                return false;
+            }
+            return (expected.compareTo(value) == 0) != negate;
+        }
+    }
+
+    /**
+     * Inclusive or exclusive numeric range.  One sided comparisons have a
+     * null bound.
+     */
+    private static final class RangeTest extends FilterPredicate
+    {
+        private final String operand;
+        private final NumberLiteral low;
+        private final boolean lowInclusive;
+        private final NumberLiteral high;
+        private final boolean highInclusive;
+
+        RangeTest(String operand, NumberLiteral low, boolean lowInclusive,
+                NumberLiteral high, boolean highInclusive)
+        {
+            this.operand = operand;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+        }
+
+        @Override
+        boolean test(Context ctx) throws CosmosException
+        {
+            Number value = ctx.number(operand);
+            if (value == null) {
+                return false;
+            }
+            if (low != null) {
+                int c = low.compareTo(value);
+                if (lowInclusive ? c < 0 : c <= 0) {
+                    return false;
+                }
+            }
+            if (high != null) {
+                int c = high.compareTo(value);
+                if (highInclusive ? c > 0 : c >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Recursive descent parser for the expression grammar.
+     */
+    private static final class Parser
+    {
+        private final String text;
+        private int pos;
+
+        Parser(String text)
+        {
+            this.text = text;
+        }
+
+        FilterPredicate parse()
+        {
+            FilterPredicate predicate = parseOr();
+            skipSpace();
+            if (pos < text.length()) {
+                throw error("Unexpected text");
+            }
+            return predicate;
+        }
+
+        private FilterPredicate parseOr()
+        {
+            FilterPredicate left = parseAnd();
+            while (accept("||")) {
+                left = new Or(left, parseAnd());
+            }
+            return left;
+        }
+
+        private FilterPredicate parseAnd()
+        {
+            FilterPredicate left = parseUnary();
+            while (accept("&&")) {
+                left = new And(left, parseUnary());
+            }
+            return left;
+        }
+
+        private FilterPredicate parseUnary()
+        {
+            if (accept("!")) {
+                return new Not(parseUnary());
+            }
+            if (accept("(")) {
+                FilterPredicate inner = parseOr();
+                expect(")");
+                return inner;
+            }
+            return parseTest();
+        }
+
+        private FilterPredicate parseTest()
+        {
+            String operand = parseOperand();
+            if (accept("~")) {
+                String regex = parseString();
+                try {
+                    return new RegexTest(operand, Pattern.compile(regex));
+                } catch (PatternSyntaxException ex) {
+                    throw error("Invalid regular expression: " + ex.getDescription());
+                }
+            }
+            if (accept("==") || accept("!=")) {
+                boolean negate = text.charAt(pos - 2) == '!';
+                skipSpace();
+                if (pos < text.length() && isQuote(text.charAt(pos))) {
+                    return new EqualsTest(operand, parseString(), negate);
+                }
+                return new NumericEqualsTest(operand, parseNumber(), negate);
+            }
+            if (accept("<=")) {
+                return new RangeTest(operand, null, true, parseNumber(), true);
+            }
+            if (accept("<")) {
+                return new RangeTest(operand, null, true, parseNumber(), false);
+            }
+            if (accept(">=")) {
+                return new RangeTest(operand, parseNumber(), true, null, true);
+            }
+            if (accept(">")) {
+                return new RangeTest(operand, parseNumber(), false, null, true);
+            }
+            if (acceptWord("in")) {
+                expect("[");
+                NumberLiteral low = parseNumber();
+                expect(",");
+                NumberLiteral high = parseNumber();
+                expect("]");
+                return new RangeTest(operand, low, true, high, true);
+            }
+            throw error("Expected an operator");
+        }
+
+        private String parseOperand()
+        {
+            skipSpace();
+            if (text.startsWith(BODY_OPERAND, pos)) {
+                pos += BODY_OPERAND.length();
+                return BODY_OPERAND;
+            }
+            if (pos < text.length() && isQuote(text.charAt(pos))) {
+                // quoted property names allow spaces and operator characters
+                return parseString();
+            }
+            int start = pos;
+            while (pos < text.length() && isNameChar(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Expected a property name or " + BODY_OPERAND);
+            }
+            return text.substring(start, pos);
+        }
+
+        private String parseString()
+        {
+            skipSpace();
+            if (pos >= text.length() || !isQuote(text.charAt(pos))) {
+                throw error("Expected a quoted string");
+            }
+            char quote = text.charAt(pos++);
+            StringBuilder value = new StringBuilder();
+            while (pos < text.length()) {
+                char ch = text.charAt(pos++);
+                if (ch == quote) {
+                    return value.toString();
+                }
+                if (ch == '\\' && pos < text.length() && text.charAt(pos) == quote) {
+                    ch = text.charAt(pos++);
+                }
+                value.append(ch);
+            }
+            throw error("Unterminated string");
+        }
+
+        private NumberLiteral parseNumber()
+        {
+            skipSpace();
+            int start = pos;
+            while (pos < text.length()
+                    && "+-.0123456789eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            try {
+                return new NumberLiteral(new BigDecimal(text.substring(start, pos)));
+            } catch (NumberFormatException ex) {
+                pos = start;
+                throw error("Expected a number");
+            }
+        }
+
+        private boolean accept(String token)
+        {
+            skipSpace();
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptWord(String word)
+        {
+            skipSpace();
+            int end = pos + word.length();
+            if (text.startsWith(word, pos)
+                    && (end == text.length() || !isNameChar(text.charAt(end)))) {
+                pos = end;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token)
+        {
+            if (!accept(token)) {
+                throw error("Expected \"" + token + "\"");
+            }
+        }
+
+        private void skipSpace()
+        {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String msg)
+        {
+            return new IllegalArgumentException(
+                    msg + " at position " + pos + " of filter \"" + text + "\"");
+        }
+
+        private static boolean isQuote(char ch)
+        {
+            return ch == '"' || ch == '\'';
+        }
+
+        private static boolean isNameChar(char ch)
+        {
+            return Character.isLetterOrDigit(ch) || ch == '_' || ch == '-' || ch == '.';
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * FilterTransformer.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.actian.dc.mcfsdk.samples;
+
+import com.pervasive.cosmos.component.Environment;
+import com.pervasive.cosmos.component.util.*;
+import com.pervasive.cosmos.messaging.*;
+import com.pervasive.cosmos.util.*;
+import com.pervasive.cosmos.CosmosException;
+import java.util.regex.Matcher;
+
+/**
+ * Sample transformer which evaluates a filter expression against the
+ * properties and body of the source message and reports the result in a
+ * boolean property of the target message.
+ * <p>
+ * The expression is compiled once per distinct filter option value (see
+ * {@link FilterPredicate} for the syntax).  The groups of the first regular
+ * expression that matched in the branch deciding the result can be written
+ * to target properties.  The source message is copied to the target either
+ * always or, when copyOnlyMatches is set, only when it matches, so
+ * non-matching messages carry no payload into later steps.
+ */
+public class FilterTransformer extends TransformerComponentBase
+{
+    public static final String FILTER_OPTION = "filter";
+    public static final String MATCH_PROPERTY_OPTION = "matchProperty";
+    public static final String GROUP_PREFIX_OPTION = "groupPrefix";
+    public static final String COPY_ONLY_MATCHES_OPTION = "copyOnlyMatches";
+
+    static final String MATCH_PROPERTY_DEFAULT = "FilterMatch";
+
+    /**
+     * components are required to provide a null constructor
+     */
+    public FilterTransformer()
+    {
+    }
+
+    /**
+     * Evaluates the filter against the source message and sets the match
+     * property on the target message.
+     * @param source Source message
+     * @param target Target message
+     * @return Completion status code.  Success == 0.
+     */
+    @Override
+    public int execute(Message source, Message target)
+    {
+        int code = ErrorCode.ERR_OK.getValue();
+        Environment env = getEnvironment();
+        try
+        {
+            String filter = env.getOption(FILTER_OPTION);
+            if (filter == null || filter.trim().length() == 0) {
+                throw new IllegalArgumentException("The filter option must be set");
+            }
+            FilterPredicate predicate = FilterPredicate.compile(filter);
+            FilterPredicate.Context ctx = new FilterPredicate.Context(source);
+            boolean matched = predicate.test(ctx);
+
+            if (matched || !Boolean.parseBoolean(env.getOption(COPY_ONLY_MATCHES_OPTION))) {
+                copyMessage(ctx, source, target);
+            }
+
+            String matchProperty = env.getOption(MATCH_PROPERTY_OPTION);
+            if (matchProperty == null || matchProperty.length() == 0) {
+                matchProperty = MATCH_PROPERTY_DEFAULT;
+            }
+            target.setProperty(matchProperty, matched);
+
+            String groupPrefix = env.getOption(GROUP_PREFIX_OPTION);
+            Matcher groups = ctx.groups();
+            if (matched && groups != null && groupPrefix != null && groupPrefix.length() > 0) {
+                for (int i = 0; i <= groups.groupCount(); i++) {
+                    String group = groups.group(i);
+                    if (group != null) {
+                        target.setProperty(groupPrefix + i, group);
+                    }
+                }
+            }
+        }
+        catch( CosmosException | IllegalArgumentException ex )
+        {
+            code = ErrorCode.ERR_INVALID.getValue();
+            env.setError(
+            LogLevel.LT_WARN,
+            ErrorCode.ERR_INVALID,
+            true,
+            ex.getMessage() );
+        }
+
+        return code;
+    }
+
+    private void copyMessage(FilterPredicate.Context ctx, Message source, Message target)
+            throws CosmosException
+    {
+        String[] propNames = source.getPropertyNames();
+        for (String propName : propNames) {
+            switch (source.getPropertyType(propName)) {
+                case Message.PROPERTY_TYPE_STRING:
+                    target.setProperty(propName, source.getStringProperty(propName));
+                    break;
+                case Message.PROPERTY_TYPE_INT:
+                    target.setProperty(propName, source.getIntProperty(propName));
+                    break;
+                case Message.PROPERTY_TYPE_LONG:
+                    target.setProperty(propName, source.getLongProperty(propName));
+                    break;
+                case Message.PROPERTY_TYPE_BOOLEAN:
+                    target.setProperty(propName, source.getBooleanProperty(propName));
+                    break;
+                case Message.PROPERTY_TYPE_DOUBLE:
+                    target.setProperty(propName, source.getDoubleProperty(propName));
+                    break;
+                case Message.PROPERTY_TYPE_DECIMAL:
+                    target.setProperty(propName, source.getDecimalProperty(propName));
+                    break;
+                case Message.PROPERTY_TYPE_BYTE:
+                    target.setProperty(propName, source.getByteProperty(propName));
+                    break;
+                default:
+                    getEnvironment().logMessage(LogLevel.LT_WARN, ErrorCode.ERR_BADTYPE,
+                            "Source message property "
+                            + propName
+                            + " has unsupported type "
+                            + source.getPropertyType(propName));
+            }
+        }
+
+        // the body is only read once, even if the filter already used it
+        String body = ctx.text(FilterPredicate.BODY_OPERAND);
+        if (body != null && target instanceof TextMessage) {
+            ((TextMessage)target).setText(body);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * FilterPredicateTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that numeric filter tests compare values exactly.
+ */
+public class FilterPredicateTest
+{
+    private static boolean test(String filter, TextMessage msg) throws Exception
+    {
+        return FilterPredicate.compile(filter).test(new FilterPredicate.Context(msg));
+    }
+
+    private static TextMessage message() throws Exception
+    {
+        TextMessage msg = StubMessage.create("9007199254740993");
+        msg.setProperty("id", 9007199254740992L);
+        msg.setProperty("count", 7);
+        msg.setProperty("small", (byte) 3);
+        msg.setProperty("ratio", 0.1);
+        msg.setProperty("price", new BigDecimal("12.50"));
+        msg.setProperty("text", " 9007199254740993 ");
+        msg.setProperty("name", "abc");
+        return msg;
+    }
+
+    @Test
+    public void comparesLongPropertiesExactly() throws Exception
+    {
+        TextMessage msg = message();
+        assertEquals(false, test("id == 9007199254740993", msg));
+        assertEquals(true, test("id == 9007199254740992", msg));
+        assertEquals(true, test("id != 9007199254740993", msg));
+        assertEquals(true, test("id < 9007199254740993", msg));
+        assertEquals(false, test("id > 9007199254740992", msg));
+        assertEquals(true, test("id > 9007199254740991.5", msg));
+        assertEquals(true, test("id in [9007199254740992, 9007199254740992]", msg));
+        assertEquals(false, test("id in [9007199254740993, 9007199254740999]", msg));
+        assertEquals(true, test("id < 1e19", msg));
+    }
+
+    @Test
+    public void comparesOtherTypes() throws Exception
+    {
+        TextMessage msg = message();
+        assertEquals(true, test("count == 7.0", msg));
+        assertEquals(false, test("count == 7.5", msg));
+        assertEquals(true, test("count < 7.5", msg));
+        assertEquals(true, test("small >= 3", msg));
+        assertEquals(true, test("ratio == 0.1", msg));
+        assertEquals(true, test("price == 12.5", msg));
+        assertEquals(false, test("price > 12.5", msg));
+        assertEquals(true, test("text == 9007199254740993", msg));
+        assertEquals(false, test("text == 9007199254740992", msg));
+        assertEquals(true, test("$body > 9007199254740992", msg));
+    }
+
+    @Test
+    public void isFalseForMissingOrNonNumericValues() throws Exception
+    {
+        TextMessage msg = message();
+        assertEquals(false, test("missing == 1", msg));
+        assertEquals(false, test("missing != 1", msg));
+        assertEquals(false, test("name == 1", msg));
+        assertEquals(false, test("name < 1", msg));
+    }
+}
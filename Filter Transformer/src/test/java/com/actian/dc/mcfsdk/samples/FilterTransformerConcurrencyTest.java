@@ -0,0 +1,105 @@
+/*
+ * FilterTransformerConcurrencyTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs shared transformers, which share the compiled filter cache, from
+ * several threads and checks the results against a single thread.
+ */
+public class FilterTransformerConcurrencyTest
+{
+    /** The groups must come from the branch that decided the result */
+    private static final String[] FILTERS = {
+        "code ~ 'A(\\d)' && status == 'open' || code ~ 'B(\\d)'",
+        "!(code ~ 'A(\\d)') && $body ~ 'C(\\d)'",
+        "amount in [100, 200] || $body ~ 'total=(\\d+)'",
+    };
+
+    private final StubEnvironment[] envs = new StubEnvironment[FILTERS.length];
+    private final FilterTransformer[] transformers = new FilterTransformer[FILTERS.length];
+
+    public FilterTransformerConcurrencyTest()
+    {
+        for (int i = 0; i < FILTERS.length; i++) {
+            envs[i] = new StubEnvironment()
+                    .option(FilterTransformer.FILTER_OPTION, FILTERS[i])
+                    .option(FilterTransformer.GROUP_PREFIX_OPTION, "G");
+            transformers[i] = new FilterTransformer();
+            transformers[i].setEnvironment(envs[i].environment());
+        }
+    }
+
+    private String transform(int filter, String code, String status, int amount, String body)
+            throws Exception
+    {
+        TextMessage source = StubMessage.create(body);
+        source.setProperty("code", code);
+        source.setProperty("status", status);
+        source.setProperty("amount", amount);
+        TextMessage target = StubMessage.create();
+        int rc = transformers[filter].execute(source, target);
+        return rc + "\n" + StubMessage.describe(target);
+    }
+
+    private String transform(int index) throws Exception
+    {
+        String code = (index % 2 == 0 ? "A" : "") + (index % 10) + "B" + (index % 7);
+        String status = index % 3 == 0 ? "open" : "closed";
+        String body = "C" + (index % 5) + " total=" + index;
+        return transform(index % FILTERS.length, code, status, index % 300, body);
+    }
+
+    @Test
+    public void matchesTheSameFromAllThreads() throws Exception
+    {
+        List<String> results = ConcurrencyHarness.verify("FilterTransformer", 30000, this::transform);
+
+        assertEquals(transform(0), results.get(0));
+        for (StubEnvironment env : envs) {
+            assertTrue(env.errors().isEmpty(), env.errors().toString());
+        }
+    }
+
+    @Test
+    public void reportsGroupsFromTheDecidingBranch() throws Exception
+    {
+        // the && fails on status, so the groups come from the second branch
+        String result = transform(0, "A1B2", "closed", 0, null);
+        assertTrue(result.contains("FilterMatch=true (Boolean)"), result);
+        assertTrue(result.contains("G1=2 (String)"), result);
+
+        result = transform(0, "A1B2", "open", 0, null);
+        assertTrue(result.contains("G1=1 (String)"), result);
+
+        // the negated test contributes no groups
+        result = transform(1, "X", "open", 0, "C3");
+        assertTrue(result.contains("FilterMatch=true (Boolean)"), result);
+        assertTrue(result.contains("G1=3 (String)"), result);
+
+        result = transform(2, "X", "open", 150, "total=7");
+        assertTrue(result.contains("FilterMatch=true (Boolean)"), result);
+        assertTrue(!result.contains("G1="), result);
+    }
+}
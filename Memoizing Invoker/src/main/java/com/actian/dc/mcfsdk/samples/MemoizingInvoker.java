@@ -0,0 +1,497 @@
+/*
+ * MemoizingInvoker.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import com.pervasive.cosmos.CosmosException;
+import com.pervasive.cosmos.component.Environment;
+import com.pervasive.cosmos.component.util.ErrorCode;
+import com.pervasive.cosmos.component.util.InvokerComponentBase;
+import com.pervasive.cosmos.messaging.Message;
+import com.pervasive.cosmos.messaging.TextMessage;
+import com.pervasive.cosmos.util.LogLevel;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Sample invoker component which decorates another invoker with a
+ * result cache.
+ * <p>
+ * The delegate invoker is named by the delegateClass option and is loaded
+ * from this component's deployment package the first time the component
+ * executes, and cannot be changed afterwards.  It shares this component's
+ * Environment, so it sees the same step options.  A cache key is built
+ * from the values of the properties listed in the keyProperties option
+ * (falling back to a step option of the same name when the source message
+ * does not have the property) and, optionally, a hash of the source body.
+ * At least one of keyProperties or keyBody must be set.  When the key is
+ * found in the cache the delegate is not called and the cached target
+ * properties and body are copied to the target message.  Only the target
+ * properties the delegate added or changed, and the body if it changed,
+ * are cached, so the target may be the source message itself.  A result
+ * is only cached if the delegate returned ERR_OK, did not set an error,
+ * and added or changed at least one target property or the body.
+ * <p>
+ * The delegate must be idempotent: only its changes to the target are
+ * cached, so any other side effect is skipped on a cache hit.
+ */
+public class MemoizingInvoker extends InvokerComponentBase
+{
+    public static final String DELEGATE_CLASS_OPTION = "delegateClass";
+    public static final String KEY_PROPERTIES_OPTION = "keyProperties";
+    public static final String KEY_BODY_OPTION = "keyBody";
+    public static final String MAX_ENTRIES_OPTION = "maxEntries";
+    public static final String TTL_SECONDS_OPTION = "ttlSeconds";
+    public static final String REPORT_STATS_OPTION = "reportStats";
+
+    static final int MAX_ENTRIES_DEFAULT = 1000;
+    static final int TTL_SECONDS_DEFAULT = 300;
+
+    /** Set when the delegate reports an error on the current thread */
+    private static final ThreadLocal<Boolean> DELEGATE_ERROR =
+            ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final Object lock = new Object();
+    private volatile Setup setup;
+
+    /**
+     * components are required to provide a null constructor
+     */
+    public MemoizingInvoker()
+    {
+    }
+
+    /**
+     * Looks up the result for the source message in the cache, calling
+     * the delegate invoker only on a cache miss.
+     *
+     * @param source Source Message
+     * @param target Target Message
+     * @return ErrorCode int value. Successful return is 0 (ERR_OK).
+     */
+    @Override
+    public int execute(Message source, Message target)
+    {
+        int rc = ErrorCode.ERR_OK.getValue();
+        Environment env = getEnvironment();
+        try
+        {
+            String className = env.getOption(DELEGATE_CLASS_OPTION);
+            String maxEntries = env.getOption(MAX_ENTRIES_OPTION);
+            String ttlSeconds = env.getOption(TTL_SECONDS_OPTION);
+            Setup current = setup;
+            if (current == null || !current.matches(className, maxEntries, ttlSeconds)) {
+                current = prepare(env, className, maxEntries, ttlSeconds);
+            }
+            InvokerComponentBase invoker = current.delegate;
+            TinyLfuCache<String, CachedResult> results = current.cache;
+
+            String key = buildKey(env, invoker, source);
+            CachedResult result = results.get(key);
+            boolean hit = result != null;
+            if (hit) {
+                result.copyTo(target);
+            } else {
+                // the target may be the source message or may already
+                // carry properties, so only what the delegate writes is
+                // remembered
+                CachedResult before = CachedResult.of(target);
+                DELEGATE_ERROR.set(Boolean.FALSE);
+                rc = invoker.execute(source, target);
+                // only successful, non-empty results are remembered
+                if (rc == ErrorCode.ERR_OK.getValue() && !DELEGATE_ERROR.get()) {
+                    CachedResult computed = CachedResult.of(target).changedSince(before);
+                    if (!computed.isEmpty()) {
+                        results.put(key, computed);
+                    }
+                }
+            }
+
+            if (Boolean.parseBoolean(env.getOption(REPORT_STATS_OPTION))) {
+                target.setProperty("CacheHit", hit);
+                target.setProperty("CacheHitRate", results.hitRate());
+            }
+        }
+        catch( Exception exc )
+        {
+            env.setError(
+                    LogLevel.LT_ERROR,
+                    ErrorCode.ERR_INVALID,
+                    true,
+                    "Exception " + exc.toString() + " occurred while attempting " +
+                    "to invoke the cached component.");
+            rc = ErrorCode.ERR_INVALID.getValue();
+        }
+
+        return rc;
+    }
+
+    /**
+     * Logs the cache statistics and releases the delegate invoker.
+     */
+    @Override
+    public int destroy()
+    {
+        synchronized (lock) {
+            Setup current = setup;
+            if (current != null) {
+                TinyLfuCache<String, CachedResult> cache = current.cache;
+                getEnvironment().logMessage(LogLevel.LT_INFO, ErrorCode.ERR_OK,
+                        String.format("Cache entries: %d, hits: %d, misses: %d, evictions: %d, hit rate: %.2f%%",
+                                cache.size(), cache.hitCount(), cache.missCount(),
+                                cache.evictionCount(), cache.hitRate() * 100));
+                current.delegate.destroy();
+                setup = null;
+            }
+        }
+        return super.destroy();
+    }
+
+    /**
+     * Creates the delegate on first use, and the cache on first use or
+     * whenever the maxEntries or ttlSeconds options change.  Only called
+     * when an option differs from the published setup, so calls with
+     * unchanged options never take the lock.  The delegate is never
+     * replaced, because other threads may still be executing it, so a
+     * later change of the delegateClass option is rejected.
+     */
+    private Setup prepare(Environment env, String className, String maxEntries, String ttlSeconds)
+            throws ReflectiveOperationException
+    {
+        synchronized (lock) {
+            Setup current = setup;
+            if (current != null && current.matches(className, maxEntries, ttlSeconds)) {
+                return current;
+            }
+            if (className == null || className.trim().length() == 0) {
+                throw new IllegalArgumentException("The delegateClass option must be set");
+            }
+            // parse first, so that a bad value does not leak a new delegate
+            int entries = intOption(maxEntries, MAX_ENTRIES_DEFAULT);
+            int ttl = intOption(ttlSeconds, TTL_SECONDS_DEFAULT);
+
+            InvokerComponentBase invoker;
+            if (current == null) {
+                // the delegate must be packaged with this component so that it
+                // is visible to the deployment package's class loader
+                Class<? extends InvokerComponentBase> cls = Class.forName(
+                        className.trim(), true, MemoizingInvoker.class.getClassLoader())
+                        .asSubclass(InvokerComponentBase.class);
+                invoker = cls.getDeclaredConstructor().newInstance();
+                invoker.setEnvironment(errorTracking(env));
+                invoker.initialize();
+            } else if (current.delegate.getClass().getName().equals(className.trim())) {
+                invoker = current.delegate;
+            } else {
+                throw new IllegalArgumentException("The delegateClass option cannot be changed from "
+                        + current.delegate.getClass().getName() + " to " + className.trim()
+                        + " once the component is in use");
+            }
+
+            TinyLfuCache<String, CachedResult> cache =
+                    current != null && current.maxEntries == entries && current.ttlSeconds == ttl ?
+                    current.cache : new TinyLfuCache<>(entries, ttl * 1000L);
+
+            setup = new Setup(invoker, cache, entries, ttl, className, maxEntries, ttlSeconds);
+            return setup;
+        }
+    }
+
+    /**
+     * Wraps the Environment handed to the delegate so that errors it sets
+     * are noticed and its result is not cached.
+     */
+    private static Environment errorTracking(Environment env)
+    {
+        return (Environment) Proxy.newProxyInstance(
+                MemoizingInvoker.class.getClassLoader(),
+                new Class<?>[] { Environment.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("setError")) {
+                        DELEGATE_ERROR.set(Boolean.TRUE);
+                    }
+                    try {
+                        return method.invoke(env, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+    }
+
+    private static int intOption(String value, int defaultValue)
+    {
+        return value != null && value.trim().length() > 0 ?
+                Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    /**
+     * Builds the cache key from the delegate class, the key properties
+     * and, if requested, a hash of the source body.
+     * @throws IllegalArgumentException if neither key properties nor the
+     *         body are configured as part of the key
+     */
+    private static String buildKey(Environment env, InvokerComponentBase invoker, Message source)
+            throws CosmosException
+    {
+        StringBuilder key = new StringBuilder(invoker.getClass().getName());
+        boolean keyed = false;
+
+        String keyProperties = env.getOption(KEY_PROPERTIES_OPTION);
+        if (keyProperties != null) {
+            for (String name : keyProperties.split(",")) {
+                name = name.trim();
+                if (name.length() == 0) {
+                    continue;
+                }
+                String value = propertyString(source, name);
+                if (value == null || value.trim().length() == 0) {
+                    value = env.getOption(name);
+                }
+                key.append('\u0000').append(name).append('=').append(value);
+                keyed = true;
+            }
+        }
+
+        if (Boolean.parseBoolean(env.getOption(KEY_BODY_OPTION))) {
+            String body = source instanceof TextMessage ?
+                    ((TextMessage) source).getText() : null;
+            key.append('\u0000').append("body=");
+            if (body != null) {
+                key.append(body.length()).append(':').append(Long.toHexString(hash(body)));
+            }
+            keyed = true;
+        }
+
+        if (!keyed) {
+            // without a key every message would get the first cached result
+            throw new IllegalArgumentException(
+                    "At least one of the keyProperties or keyBody options must be set");
+        }
+        return key.toString();
+    }
+
+    private static String propertyString(Message source, String name) throws CosmosException
+    {
+        switch (source.getPropertyType(name)) {
+            case Message.PROPERTY_TYPE_STRING:
+                return source.getStringProperty(name);
+            case Message.PROPERTY_TYPE_INT:
+                return String.valueOf(source.getIntProperty(name));
+            case Message.PROPERTY_TYPE_LONG:
+                return String.valueOf(source.getLongProperty(name));
+            case Message.PROPERTY_TYPE_BOOLEAN:
+                return String.valueOf(source.getBooleanProperty(name));
+            case Message.PROPERTY_TYPE_DOUBLE:
+                return String.valueOf(source.getDoubleProperty(name));
+            case Message.PROPERTY_TYPE_DECIMAL:
+                return String.valueOf(source.getDecimalProperty(name));
+            case Message.PROPERTY_TYPE_BYTE:
+                return String.valueOf(source.getByteProperty(name));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the body, computed without copying it.
+     */
+    static long hash(CharSequence body)
+    {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = body.length(); i < n; i++) {
+            h ^= body.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * The delegate and cache, together with the option values they were
+     * set up for.  Immutable, so it can be read without the lock.
+     */
+    private static final class Setup
+    {
+        final InvokerComponentBase delegate;
+        final TinyLfuCache<String, CachedResult> cache;
+        final int maxEntries;
+        final int ttlSeconds;
+        private final String classOption;
+        private final String maxEntriesOption;
+        private final String ttlSecondsOption;
+
+        Setup(InvokerComponentBase delegate, TinyLfuCache<String, CachedResult> cache,
+                int maxEntries, int ttlSeconds,
+                String classOption, String maxEntriesOption, String ttlSecondsOption)
+        {
+            this.delegate = delegate;
+            this.cache = cache;
+            this.maxEntries = maxEntries;
+            this.ttlSeconds = ttlSeconds;
+            this.classOption = classOption;
+            this.maxEntriesOption = maxEntriesOption;
+            this.ttlSecondsOption = ttlSecondsOption;
+        }
+
+        /**
+         * Returns true if the options still have the values this setup was
+         * made for.
+         */
+        boolean matches(String className, String maxEntries, String ttlSeconds)
+        {
+            return Objects.equals(classOption, className)
+                    && Objects.equals(maxEntriesOption, maxEntries)
+                    && Objects.equals(ttlSecondsOption, ttlSeconds);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the properties and body of a target message,
+     * or of the changes between two snapshots.
+     */
+    static final class CachedResult
+    {
+        private final String[] names;
+        private final int[] types;
+        private final Object[] values;
+        private final String body;
+
+        private CachedResult(String[] names, int[] types, Object[] values, String body)
+        {
+            this.names = names;
+            this.types = types;
+            this.values = values;
+            this.body = body;
+        }
+
+        static CachedResult of(Message target) throws CosmosException
+        {
+            String[] names = target.getPropertyNames();
+            if (names == null) {
+                names = new String[0];
+            }
+            int[] types = new int[names.length];
+            Object[] values = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i];
+                types[i] = target.getPropertyType(name);
+                switch (types[i]) {
+                    case Message.PROPERTY_TYPE_STRING:
+                        values[i] = target.getStringProperty(name);
+                        break;
+                    case Message.PROPERTY_TYPE_INT:
+                        values[i] = target.getIntProperty(name);
+                        break;
+                    case Message.PROPERTY_TYPE_LONG:
+                        values[i] = target.getLongProperty(name);
+                        break;
+                    case Message.PROPERTY_TYPE_BOOLEAN:
+                        values[i] = target.getBooleanProperty(name);
+                        break;
+                    case Message.PROPERTY_TYPE_DOUBLE:
+                        values[i] = target.getDoubleProperty(name);
+                        break;
+                    case Message.PROPERTY_TYPE_DECIMAL:
+                        values[i] = target.getDecimalProperty(name);
+                        break;
+                    case Message.PROPERTY_TYPE_BYTE:
+                        values[i] = target.getByteProperty(name);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            String body = target instanceof TextMessage ?
+                    ((TextMessage) target).getText() : null;
+            return new CachedResult(names, types, values, body);
+        }
+
+        /**
+         * Returns the properties that were added or changed since the
+         * earlier snapshot of the same message, and the body only if it
+         * changed.
+         */
+        CachedResult changedSince(CachedResult before)
+        {
+            HashMap<String, Integer> earlier = new HashMap<>();
+            for (int i = 0; i < before.names.length; i++) {
+                earlier.put(before.names[i], i);
+            }
+            int count = 0;
+            String[] changedNames = new String[names.length];
+            int[] changedTypes = new int[names.length];
+            Object[] changedValues = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                Integer j = earlier.get(names[i]);
+                if (j == null || before.types[j] != types[i]
+                        || !Objects.equals(before.values[j], values[i])) {
+                    changedNames[count] = names[i];
+                    changedTypes[count] = types[i];
+                    changedValues[count] = values[i];
+                    count++;
+                }
+            }
+            return new CachedResult(
+                    Arrays.copyOf(changedNames, count),
+                    Arrays.copyOf(changedTypes, count),
+                    Arrays.copyOf(changedValues, count),
+                    Objects.equals(body, before.body) ? null : body);
+        }
+
+        boolean isEmpty()
+        {
+            return names.length == 0 && (body == null || body.length() == 0);
+        }
+
+        void copyTo(Message target) throws CosmosException
+        {
+            for (int i = 0; i < names.length; i++) {
+                switch (types[i]) {
+                    case Message.PROPERTY_TYPE_STRING:
+                        target.setProperty(names[i], (String) values[i]);
+                        break;
+                    case Message.PROPERTY_TYPE_INT:
+                        target.setProperty(names[i], ((Integer) values[i]).intValue());
+                        break;
+                    case Message.PROPERTY_TYPE_LONG:
+                        target.setProperty(names[i], ((Long) values[i]).longValue());
+                        break;
+                    case Message.PROPERTY_TYPE_BOOLEAN:
+                        target.setProperty(names[i], ((Boolean) values[i]).booleanValue());
+                        break;
+                    case Message.PROPERTY_TYPE_DOUBLE:
+                        target.setProperty(names[i], ((Double) values[i]).doubleValue());
+                        break;
+                    case Message.PROPERTY_TYPE_DECIMAL:
+                        target.setProperty(names[i], (BigDecimal) values[i]);
+                        break;
+                    case Message.PROPERTY_TYPE_BYTE:
+                        target.setProperty(names[i], ((Byte) values[i]).byteValue());
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (body != null && target instanceof TextMessage) {
+                ((TextMessage) target).setText(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * TinyLfuCache.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import java.util.HashMap;
+
+/**
+ * Size and time bounded cache using a simplified W-TinyLFU eviction policy.
+ * <p>
+ * New entries enter a small LRU "window".  Entries leaving the window are
+ * moved to the probation segment of a segmented LRU, and are only kept
+ * there if a frequency sketch estimates they are used more often than the
+ * entry that would otherwise be evicted.  Entries hit while on probation
+ * are promoted to the protected segment.
+ * <p>
+ * Entries expire a fixed time after they were written.  Expired entries
+ * are dropped when they are next read.
+ * <p>
+ * All methods are synchronized, so a single instance may be shared by
+ * several process threads.
+ */
+final class TinyLfuCache<K, V>
+{
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final HashMap<K, Node<K, V>> data = new HashMap<>();
+    private final NodeList<K, V> window = new NodeList<>();
+    private final NodeList<K, V> probation = new NodeList<>();
+    private final NodeList<K, V> protectedList = new NodeList<>();
+    private final FrequencySketch sketch;
+    private final int maximumSize;
+    private final int maxWindow;
+    private final int maxProtected;
+    private final long ttlNanos;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Creates a new cache
+     * @param maximumSize maximum number of entries, must be positive
+     * @param ttlMillis time to live of an entry after it is written, in
+     *                  milliseconds.  Zero or less means entries never expire.
+     */
+    TinyLfuCache(int maximumSize, long ttlMillis)
+    {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.maxWindow = Math.max(1, maximumSize / 100);
+        this.maxProtected = (int) ((maximumSize - maxWindow) * 0.8);
+        this.ttlNanos = ttlMillis > 0 ? ttlMillis * 1000000L : 0L;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns the cached value for the key, or null if it is not present
+     * or has expired.
+     */
+    synchronized V get(K key)
+    {
+        sketch.increment(key.hashCode());
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - node.expiresAt >= 0) {
+            removeNode(node);
+            missCount++;
+            return null;
+        }
+        onAccess(node);
+        hitCount++;
+        return node.value;
+    }
+
+    /**
+     * Adds or replaces the cached value for the key.
+     */
+    synchronized void put(K key, V value)
+    {
+        long expiresAt = System.nanoTime() + ttlNanos;
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            node.expiresAt = expiresAt;
+            onAccess(node);
+            return;
+        }
+        node = new Node<>(key, value, expiresAt);
+        data.put(key, node);
+        window.addLast(node);
+        evict();
+    }
+
+    synchronized int size()
+    {
+        return data.size();
+    }
+
+    synchronized long hitCount()
+    {
+        return hitCount;
+    }
+
+    synchronized long missCount()
+    {
+        return missCount;
+    }
+
+    synchronized long evictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the ratio of hits to lookups, or 0 if there were no lookups.
+     */
+    synchronized double hitRate()
+    {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0.0 : (double) hitCount / requests;
+    }
+
+    private void onAccess(Node<K, V> node)
+    {
+        switch (node.segment) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.segment = PROTECTED;
+                protectedList.addLast(node);
+                // demote the least recently used protected entries
+                while (protectedList.size > maxProtected) {
+                    Node<K, V> demoted = protectedList.removeFirst();
+                    demoted.segment = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            default:
+                protectedList.moveToLast(node);
+                break;
+        }
+    }
+
+    private void evict()
+    {
+        // entries leaving the window become admission candidates
+        while (window.size > maxWindow) {
+            Node<K, V> candidate = window.removeFirst();
+            candidate.segment = PROBATION;
+            probation.addLast(candidate);
+        }
+
+        while (data.size() > maximumSize) {
+            Node<K, V> victim = probation.head;
+            Node<K, V> candidate = probation.tail;
+            if (victim == null) {
+                victim = protectedList.head != null ? protectedList.head : window.head;
+                candidate = null;
+            }
+            if (candidate == null || candidate == victim
+                    || sketch.frequency(candidate.key.hashCode())
+                        > sketch.frequency(victim.key.hashCode())) {
+                removeNode(victim);
+            } else {
+                removeNode(candidate);
+            }
+            evictionCount++;
+        }
+    }
+
+    private void removeNode(Node<K, V> node)
+    {
+        data.remove(node.key);
+        switch (node.segment) {
+            case WINDOW:
+                window.remove(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            default:
+                protectedList.remove(node);
+                break;
+        }
+    }
+
+    private static final class Node<K, V>
+    {
+        final K key;
+        V value;
+        long expiresAt;
+        int segment = WINDOW;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long expiresAt)
+        {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list ordered from least to most recently used.
+     */
+    private static final class NodeList<K, V>
+    {
+        Node<K, V> head;
+        Node<K, V> tail;
+        int size;
+
+        void addLast(Node<K, V> node)
+        {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        Node<K, V> removeFirst()
+        {
+            Node<K, V> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void remove(Node<K, V> node)
+        {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node)
+        {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters used to estimate how often a key
+     * has been requested.  Counters are halved periodically so that the
+     * estimate favours recent history.
+     */
+    private static final class FrequencySketch
+    {
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize)
+        {
+            int length = Integer.highestOneBit(Math.max(8, maximumSize - 1)) << 1;
+            table = new long[length];
+            tableMask = length - 1;
+            sampleSize = 10 * Math.max(8, maximumSize);
+        }
+
+        int frequency(int hashCode)
+        {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int hashCode)
+        {
+            int hash = spread(hashCode);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+
+        private boolean incrementAt(int index, int counter)
+        {
+            int offset = counter << 2;
+            long mask = 0xfL << offset;
+            if ((table[index] & mask) != mask) {
+                table[index] += 1L << offset;
+                return true;
+            }
+            return false;
+        }
+
+        private void reset()
+        {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions = (additions - (odd >>> 2)) >>> 1;
+        }
+
+        private int indexOf(int hash, int i)
+        {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return ((int) h) & tableMask;
+        }
+
+        private static int spread(int x)
+        {
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            x = ((x >>> 16) ^ x) * 0x45d9f3b;
+            return (x >>> 16) ^ x;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * MemoizingInvokerConcurrencyTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pervasive.cosmos.component.util.ErrorCode;
+import com.pervasive.cosmos.component.util.InvokerComponentBase;
+import com.pervasive.cosmos.messaging.Message;
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs one shared memoizing invoker, with a cache smaller than the number
+ * of distinct keys, from several threads and checks the results against
+ * a single thread.
+ */
+public class MemoizingInvokerConcurrencyTest
+{
+    private static final AtomicInteger SQUARE_CALLS = new AtomicInteger();
+
+    /**
+     * Delegate which squares the "n" property of the source message
+     */
+    public static class SquareInvoker extends InvokerComponentBase
+    {
+        @Override
+        public int execute(Message source, Message target)
+        {
+            try {
+                int n = source.getIntProperty("n");
+                target.setProperty("square", (long) n * n);
+                SQUARE_CALLS.incrementAndGet();
+                return ErrorCode.ERR_OK.getValue();
+            } catch (Exception ex) {
+                return ErrorCode.ERR_INVALID.getValue();
+            }
+        }
+    }
+
+    /**
+     * Delegate which echoes the source body
+     */
+    public static class EchoInvoker extends InvokerComponentBase
+    {
+        @Override
+        public int execute(Message source, Message target)
+        {
+            try {
+                ((TextMessage) target).setText(((TextMessage) source).getText());
+                return ErrorCode.ERR_OK.getValue();
+            } catch (Exception ex) {
+                return ErrorCode.ERR_INVALID.getValue();
+            }
+        }
+    }
+
+    private static String invoke(MemoizingInvoker invoker, int n) throws Exception
+    {
+        TextMessage source = StubMessage.create();
+        source.setProperty("n", n);
+        TextMessage target = StubMessage.create();
+        int rc = invoker.execute(source, target);
+        return rc + "\n" + StubMessage.describe(target);
+    }
+
+    @Test
+    public void returnsTheSameResultsFromAllThreads() throws Exception
+    {
+        StubEnvironment env = new StubEnvironment()
+                .option(MemoizingInvoker.DELEGATE_CLASS_OPTION, SquareInvoker.class.getName())
+                .option(MemoizingInvoker.KEY_PROPERTIES_OPTION, "n")
+                .option(MemoizingInvoker.MAX_ENTRIES_OPTION, "64");
+        MemoizingInvoker invoker = new MemoizingInvoker();
+        invoker.setEnvironment(env.environment());
+        SQUARE_CALLS.set(0);
+
+        int tasks = 40000;
+        List<String> results = ConcurrencyHarness.verify("MemoizingInvoker", tasks,
+                i -> invoke(invoker, i % 100));
+
+        assertEquals("0\nsquare=9801 (Long)\n", results.get(99));
+        assertTrue(env.errors().isEmpty(), env.errors().toString());
+        // most calls must have been answered from the cache
+        int runs = ConcurrencyHarness.THREAD_COUNTS.length;
+        assertTrue(SQUARE_CALLS.get() < tasks * runs / 2, "delegate calls: " + SQUARE_CALLS.get());
+    }
+
+    @Test
+    public void rejectsAChangeOfDelegate() throws Exception
+    {
+        StubEnvironment env = new StubEnvironment()
+                .option(MemoizingInvoker.DELEGATE_CLASS_OPTION, SquareInvoker.class.getName())
+                .option(MemoizingInvoker.KEY_PROPERTIES_OPTION, "n");
+        MemoizingInvoker invoker = new MemoizingInvoker();
+        invoker.setEnvironment(env.environment());
+
+        assertEquals("0\nsquare=49 (Long)\n", invoke(invoker, 7));
+
+        env.option(MemoizingInvoker.DELEGATE_CLASS_OPTION, EchoInvoker.class.getName());
+        assertTrue(invoke(invoker, 7).startsWith(ErrorCode.ERR_INVALID.getValue() + "\n"));
+        assertEquals(1, env.errors().size());
+        assertTrue(env.errors().get(0).contains("cannot be changed"), env.errors().get(0));
+    }
+}
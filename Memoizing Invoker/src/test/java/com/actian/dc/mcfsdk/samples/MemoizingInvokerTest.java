@@ -0,0 +1,219 @@
+/*
+ * MemoizingInvokerTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pervasive.cosmos.component.util.ErrorCode;
+import com.pervasive.cosmos.component.util.InvokerComponentBase;
+import com.pervasive.cosmos.messaging.Message;
+import com.pervasive.cosmos.messaging.TextMessage;
+import com.pervasive.cosmos.util.LogLevel;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks what the memoizing invoker caches and when it calls its delegate.
+ */
+public class MemoizingInvokerTest
+{
+    private static final AtomicInteger CALLS = new AtomicInteger();
+
+    /**
+     * Delegate which sets a code property derived from the sku property
+     */
+    public static class CodeInvoker extends InvokerComponentBase
+    {
+        @Override
+        public int execute(Message source, Message target)
+        {
+            try {
+                CALLS.incrementAndGet();
+                target.setProperty("code", "code-" + source.getStringProperty("sku"));
+                return ErrorCode.ERR_OK.getValue();
+            } catch (Exception ex) {
+                return ErrorCode.ERR_INVALID.getValue();
+            }
+        }
+    }
+
+    /**
+     * Delegate which sets a property but reports an error
+     */
+    public static class ErrorInvoker extends InvokerComponentBase
+    {
+        @Override
+        public int execute(Message source, Message target)
+        {
+            try {
+                CALLS.incrementAndGet();
+                target.setProperty("code", "partial");
+                getEnvironment().setError(LogLevel.LT_WARN, ErrorCode.ERR_INVALID, true, "lookup failed");
+                return ErrorCode.ERR_OK.getValue();
+            } catch (Exception ex) {
+                return ErrorCode.ERR_INVALID.getValue();
+            }
+        }
+    }
+
+    /**
+     * Delegate which writes nothing
+     */
+    public static class NothingInvoker extends InvokerComponentBase
+    {
+        @Override
+        public int execute(Message source, Message target)
+        {
+            CALLS.incrementAndGet();
+            return ErrorCode.ERR_OK.getValue();
+        }
+    }
+
+    private StubEnvironment env;
+    private MemoizingInvoker invoker;
+
+    @BeforeEach
+    public void setUp()
+    {
+        CALLS.set(0);
+        env = new StubEnvironment()
+                .option(MemoizingInvoker.DELEGATE_CLASS_OPTION, CodeInvoker.class.getName())
+                .option(MemoizingInvoker.KEY_PROPERTIES_OPTION, "sku");
+        invoker = new MemoizingInvoker();
+        invoker.setEnvironment(env.environment());
+    }
+
+    private static TextMessage order(String sku, int orderId)
+    {
+        TextMessage msg = StubMessage.create("order " + orderId);
+        try {
+            msg.setProperty("sku", sku);
+            msg.setProperty("orderId", orderId);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+        return msg;
+    }
+
+    @Test
+    public void cachesOnlyWhatTheDelegateWroteWhenSourceIsTarget() throws Exception
+    {
+        TextMessage first = order("A", 1);
+        assertEquals(0, invoker.execute(first, first));
+        TextMessage second = order("A", 2);
+        assertEquals(0, invoker.execute(second, second));
+
+        assertEquals(1, CALLS.get());
+        assertEquals("code=code-A (String)\n"
+                + "orderId=2 (Integer)\n"
+                + "sku=A (String)\n"
+                + "body=order 2",
+                StubMessage.describe(second));
+    }
+
+    @Test
+    public void doesNotCacheLeftoverTargetProperties() throws Exception
+    {
+        TextMessage reused = StubMessage.create("leftover body");
+        reused.setProperty("leftover", "x");
+        invoker.execute(order("A", 1), reused);
+
+        TextMessage fresh = StubMessage.create();
+        invoker.execute(order("A", 2), fresh);
+
+        assertEquals(1, CALLS.get());
+        assertEquals("code=code-A (String)\n", StubMessage.describe(fresh));
+    }
+
+    @Test
+    public void doesNotCacheWhenTheDelegateWritesNothing() throws Exception
+    {
+        env.option(MemoizingInvoker.DELEGATE_CLASS_OPTION, NothingInvoker.class.getName());
+        invoker = new MemoizingInvoker();
+        invoker.setEnvironment(env.environment());
+
+        // the message already has properties and a body of its own
+        TextMessage msg = order("A", 1);
+        invoker.execute(msg, msg);
+        invoker.execute(msg, msg);
+
+        assertEquals(2, CALLS.get());
+    }
+
+    @Test
+    public void doesNotCacheWhenTheDelegateSetsAnError() throws Exception
+    {
+        env.option(MemoizingInvoker.DELEGATE_CLASS_OPTION, ErrorInvoker.class.getName());
+        invoker = new MemoizingInvoker();
+        invoker.setEnvironment(env.environment());
+
+        invoker.execute(order("A", 1), StubMessage.create());
+        invoker.execute(order("A", 1), StubMessage.create());
+
+        assertEquals(2, CALLS.get());
+        assertEquals(2, env.errors().size());
+    }
+
+    @Test
+    public void expiresEntriesAfterTheirTimeToLive() throws Exception
+    {
+        env.option(MemoizingInvoker.TTL_SECONDS_OPTION, "1");
+
+        invoker.execute(order("A", 1), StubMessage.create());
+        invoker.execute(order("A", 2), StubMessage.create());
+        assertEquals(1, CALLS.get());
+
+        Thread.sleep(1100);
+        invoker.execute(order("A", 3), StubMessage.create());
+        assertEquals(2, CALLS.get());
+    }
+
+    @Test
+    public void keysOnTheBody() throws Exception
+    {
+        env.option(MemoizingInvoker.KEY_PROPERTIES_OPTION, null)
+                .option(MemoizingInvoker.KEY_BODY_OPTION, "true");
+
+        TextMessage first = order("A", 1);
+        invoker.execute(first, StubMessage.create());
+        // same body, different sku: a hit with the first result
+        TextMessage sameBody = order("B", 1);
+        TextMessage target = StubMessage.create();
+        invoker.execute(sameBody, target);
+        assertEquals(1, CALLS.get());
+        assertEquals("code=code-A (String)\n", StubMessage.describe(target));
+
+        invoker.execute(order("A", 2), StubMessage.create());
+        assertEquals(2, CALLS.get());
+    }
+
+    @Test
+    public void rejectsAConfigurationWithoutAKey() throws Exception
+    {
+        env.option(MemoizingInvoker.KEY_PROPERTIES_OPTION, " , ");
+
+        int rc = invoker.execute(order("A", 1), StubMessage.create());
+
+        assertEquals(ErrorCode.ERR_INVALID.getValue(), rc);
+        assertEquals(0, CALLS.get());
+        assertEquals(1, env.errors().size());
+        assertTrue(env.errors().get(0).contains("keyProperties or keyBody"), env.errors().get(0));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * TinyLfuCacheConcurrencyTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reads and writes one shared cache from several threads and checks that
+ * it never returns a wrong value or grows past its maximum size.
+ */
+public class TinyLfuCacheConcurrencyTest
+{
+    private static final int MAX_ENTRIES = 64;
+
+    @Test
+    public void staysConsistentUnderContention() throws Exception
+    {
+        TinyLfuCache<Integer, String> cache = new TinyLfuCache<>(MAX_ENTRIES, 0);
+        int tasks = 100000;
+
+        List<String> results = ConcurrencyHarness.verify("TinyLfuCache", tasks, i -> {
+            int key = i % 500;
+            String value = cache.get(key);
+            if (value == null) {
+                cache.put(key, "v" + key);
+            } else if (!value.equals("v" + key)) {
+                return "key " + key + " had " + value;
+            }
+            int size = cache.size();
+            return size <= MAX_ENTRIES ? "ok" : "size " + size;
+        });
+
+        for (String result : results) {
+            assertEquals("ok", result);
+        }
+        int runs = ConcurrencyHarness.THREAD_COUNTS.length;
+        assertEquals((long) tasks * runs, cache.hitCount() + cache.missCount());
+        assertTrue(cache.size() <= MAX_ENTRIES, "size " + cache.size());
+        assertTrue(cache.evictionCount() > 0);
+    }
+
+    @Test
+    public void keepsFrequentlyUsedEntriesThroughAScan()
+    {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(MAX_ENTRIES, 0);
+        cache.put("hot", "value");
+        for (int i = 0; i < 20; i++) {
+            cache.get("hot");
+        }
+        for (int i = 0; i < 10 * MAX_ENTRIES; i++) {
+            cache.put("cold" + i, "value");
+        }
+
+        assertNotNull(cache.get("hot"));
+        assertEquals(MAX_ENTRIES, cache.size());
+    }
+}
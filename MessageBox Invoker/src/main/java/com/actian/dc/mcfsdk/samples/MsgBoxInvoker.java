@@ -79,20 +79,7 @@ public class MsgBoxInvoker extends InvokerComponentBase
                 displayText.append("Source message body: ");
                 displayText.append(srcTxt);
 
-                JTextArea textArea = new JTextArea(displayText.toString());
-                textArea.setEditable(false);
-                JScrollPane scrollPane = new JScrollPane(textArea);
-                scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-                scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-
-                JOptionPane optionPane = new JOptionPane(scrollPane, JOptionPane.PLAIN_MESSAGE);
-                optionPane.setPreferredSize(new Dimension(500, 350));
-                optionPane.setOptionType(JOptionPane.OK_CANCEL_OPTION);
-                JDialog dialog = optionPane.createDialog("Message Content");
-                dialog.setSize(600, 400);
-                dialog.setAutoRequestFocus(true);
-                dialog.setModal(true);
-                dialog.setVisible(true);
+                Dialogs.showMessageContent(displayText.toString());
             }
         } catch (CosmosException | HeadlessException exc) {
             this.getEnvironment().setError(
@@ -115,8 +102,37 @@ public class MsgBoxInvoker extends InvokerComponentBase
         String response = "";
         if (optName != null && optName.equals(CUSTOM_OPTION)) {
             // Present a dialog to gather the user's response.
-            response = JOptionPane.showInputDialog("Provide Custom Option Value");
+            response = Dialogs.showInputDialog("Provide Custom Option Value");
         }
         return response;
     }
+
+    /**
+     * Keeps all Swing references out of MsgBoxInvoker itself, so the Swing
+     * and AWT classes are only loaded the first time a dialog is shown
+     * rather than whenever the component package is loaded.
+     */
+    private static final class Dialogs {
+
+        static void showMessageContent(String text) {
+            JTextArea textArea = new JTextArea(text);
+            textArea.setEditable(false);
+            JScrollPane scrollPane = new JScrollPane(textArea);
+            scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+            scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+
+            JOptionPane optionPane = new JOptionPane(scrollPane, JOptionPane.PLAIN_MESSAGE);
+            optionPane.setPreferredSize(new Dimension(500, 350));
+            optionPane.setOptionType(JOptionPane.OK_CANCEL_OPTION);
+            JDialog dialog = optionPane.createDialog("Message Content");
+            dialog.setSize(600, 400);
+            dialog.setAutoRequestFocus(true);
+            dialog.setModal(true);
+            dialog.setVisible(true);
+        }
+
+        static String showInputDialog(String prompt) {
+            return JOptionPane.showInputDialog(prompt);
+        }
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * NullTransformerConcurrencyTest.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Copies messages with one shared transformer from several threads and
+ * checks that every target is an exact copy of its source.
+ */
+public class NullTransformerConcurrencyTest
+{
+    private static TextMessage message(int index) throws Exception
+    {
+        TextMessage msg = StubMessage.create("body " + index);
+        msg.setProperty("name", "message-" + index);
+        msg.setProperty("index", index);
+        msg.setProperty("id", 9000000000L + index);
+        msg.setProperty("even", index % 2 == 0);
+        msg.setProperty("ratio", index / 8.0);
+        msg.setProperty("price", new BigDecimal(index).movePointLeft(2));
+        msg.setProperty("flags", (byte) index);
+        return msg;
+    }
+
+    @Test
+    public void copiesTheSameFromAllThreads() throws Exception
+    {
+        StubEnvironment env = new StubEnvironment();
+        NullTransformer transformer = new NullTransformer();
+        transformer.setEnvironment(env.environment());
+
+        List<String> results = ConcurrencyHarness.verify("NullTransformer", 20000, i -> {
+            TextMessage target = StubMessage.create();
+            int rc = transformer.execute(message(i), target);
+            return rc + "\n" + StubMessage.describe(target);
+        });
+
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals("0\n" + StubMessage.describe(message(i)), results.get(i));
+        }
+        assertTrue(env.errors().isEmpty(), env.errors().toString());
+        assertTrue(env.messages().isEmpty(), env.messages().toString());
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * ConcurrencyHarness.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs numbered tasks against a shared component from several threads,
+ * the way process steps on different threads share one component
+ * instance, and checks that every thread count gives the same results as
+ * a single thread.
+ */
+public final class ConcurrencyHarness
+{
+    /** Thread counts that {@link #verify} compares */
+    public static final int[] THREAD_COUNTS = { 1, 2, 4, 8 };
+
+    /**
+     * How many times longer than the single threaded run a run with more
+     * threads may take.  Throughput is not expected to grow with the
+     * thread count, which depends on the machine, but a run this much
+     * slower points to threads waiting on each other.
+     */
+    public static final int MAX_SLOWDOWN = 5;
+
+    /** Allowance for timer and scheduling noise in short runs, in milliseconds */
+    private static final long SLACK_MILLIS = 200;
+
+    /** How long a run may take before it is reported as hung, in seconds */
+    private static final long TIMEOUT_SECONDS = 120;
+
+    /**
+     * A unit of work.  The result must depend only on the task index.
+     */
+    public interface Task<T>
+    {
+        T call(int index) throws Exception;
+    }
+
+    private ConcurrencyHarness()
+    {
+    }
+
+    /**
+     * Results and elapsed time of one run
+     */
+    private static final class Run<T>
+    {
+        final List<T> results;
+        final long elapsed;
+
+        Run(List<T> results, long elapsed)
+        {
+            this.results = results;
+            this.elapsed = elapsed;
+        }
+    }
+
+    /**
+     * Runs the tasks with each of {@link #THREAD_COUNTS} threads, printing
+     * the throughput of each run.
+     * @return the results of the single threaded run, by task index
+     * @throws AssertionError if a run with more threads gives a different
+     *         result for any task, or takes more than {@link #MAX_SLOWDOWN}
+     *         times as long as the single threaded run
+     */
+    public static <T> List<T> verify(String name, int tasks, Task<T> task) throws Exception
+    {
+        List<T> expected = null;
+        long single = 0;
+        for (int threads : THREAD_COUNTS) {
+            Run<T> run = timedRun(name, threads, tasks, task);
+            List<T> actual = run.results;
+            if (expected == null) {
+                expected = actual;
+                single = run.elapsed;
+                continue;
+            }
+            long limit = MAX_SLOWDOWN * single + TimeUnit.MILLISECONDS.toNanos(SLACK_MILLIS);
+            if (run.elapsed > limit) {
+                throw new AssertionError(String.format("%s: %d threads took %d ms but one thread"
+                        + " took %d ms", name, threads, TimeUnit.NANOSECONDS.toMillis(run.elapsed),
+                        TimeUnit.NANOSECONDS.toMillis(single)));
+            }
+            for (int i = 0; i < tasks; i++) {
+                if (!expected.get(i).equals(actual.get(i))) {
+                    throw new AssertionError(name + ": task " + i + " with " + threads
+                            + " threads gave <" + actual.get(i) + "> but one thread gave <"
+                            + expected.get(i) + ">");
+                }
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Runs the tasks on the given number of threads, which all start
+     * together and take the next task index until none are left.
+     * @return the results, by task index
+     * @throws AssertionError if the run does not finish within two minutes
+     */
+    public static <T> List<T> run(String name, int threads, int tasks, Task<T> task)
+            throws Exception
+    {
+        return timedRun(name, threads, tasks, task).results;
+    }
+
+    private static <T> Run<T> timedRun(String name, int threads, int tasks, Task<T> task)
+            throws Exception
+    {
+        Object[] results = new Object[tasks];
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = next.getAndIncrement(); i < tasks && failure.get() == null;
+                            i = next.getAndIncrement()) {
+                        results[i] = task.call(i);
+                    }
+                } catch (Throwable ex) {
+                    failure.compareAndSet(null, ex);
+                }
+            }, name + "-" + t);
+            // a hung worker must not keep the test JVM alive
+            workers[t].setDaemon(true);
+            workers[t].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        long deadline = begin + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            if (worker.isAlive()) {
+                AssertionError hung = new AssertionError(name + ": " + threads
+                        + " threads did not finish within " + TIMEOUT_SECONDS + " seconds");
+                // stops the other workers after their current task
+                failure.compareAndSet(null, hung);
+                throw hung;
+            }
+        }
+        long elapsed = Math.max(1, System.nanoTime() - begin);
+
+        Throwable ex = failure.get();
+        if (ex instanceof Exception) {
+            throw (Exception) ex;
+        } else if (ex != null) {
+            throw (Error) ex;
+        }
+        System.out.printf("%s: %d threads, %d tasks, %.0f tasks/s%n",
+                name, threads, tasks, tasks * 1e9 / elapsed);
+
+        @SuppressWarnings("unchecked")
+        List<T> list = new ArrayList<>((List<T>) Arrays.asList(results));
+        return new Run<>(list, elapsed);
+    }
+}
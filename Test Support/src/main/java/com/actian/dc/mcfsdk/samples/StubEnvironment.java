@@ -0,0 +1,125 @@
+/*
+ * StubEnvironment.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import com.pervasive.cosmos.component.Environment;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory Environment for running sample components outside of the
+ * DataConnect engine.
+ * <p>
+ * Step options are held in a map and errors and log messages are recorded
+ * as "LEVEL CODE: text" strings.  The stub may be used from several
+ * threads at once.  Methods the samples do not use return null.
+ */
+public final class StubEnvironment implements InvocationHandler
+{
+    private final Map<String, String> options = new ConcurrentHashMap<>();
+    private final List<String> errors = new ArrayList<>();
+    private final List<String> messages = new ArrayList<>();
+    private final Environment environment;
+
+    public StubEnvironment()
+    {
+        environment = (Environment) Proxy.newProxyInstance(
+                StubEnvironment.class.getClassLoader(),
+                new Class<?>[] { Environment.class },
+                this);
+    }
+
+    /**
+     * Returns the Environment to hand to a component
+     */
+    public Environment environment()
+    {
+        return environment;
+    }
+
+    /**
+     * Sets a step option, or removes it if the value is null
+     * @return this stub, so options can be chained
+     */
+    public StubEnvironment option(String name, String value)
+    {
+        if (value == null) {
+            options.remove(name);
+        } else {
+            options.put(name, value);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the errors set so far
+     */
+    public List<String> errors()
+    {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    /**
+     * Returns the messages logged so far
+     */
+    public List<String> messages()
+    {
+        synchronized (messages) {
+            return new ArrayList<>(messages);
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "StubEnvironment" + options;
+            case "getOption":
+                return options.get((String) args[0]);
+            case "setOption":
+                return args[1] == null ?
+                        options.remove((String) args[0]) : options.put((String) args[0], (String) args[1]);
+            case "setError":
+                synchronized (errors) {
+                    // level, code, log flag, text
+                    errors.add(args[0] + " " + args[1] + ": " + args[3]);
+                }
+                return null;
+            case "logMessage":
+                synchronized (messages) {
+                    messages.add(args[0] + " " + args[1] + ": " + args[2]);
+                }
+                return null;
+            default:
+                return method.getReturnType() == boolean.class ? Boolean.FALSE
+                        : method.getReturnType() == int.class ? Integer.valueOf(0) : null;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * StubMessage.java
+ *
+ * Copyright (c) 2022 by Actian Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.actian.dc.mcfsdk.samples;
+
+import com.pervasive.cosmos.messaging.Message;
+import com.pervasive.cosmos.messaging.TextMessage;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory TextMessage for running sample components outside of the
+ * DataConnect engine.
+ * <p>
+ * Properties keep the Java type they were set with, so a test can tell an
+ * int property from a long one.  A property the message does not have is
+ * reported as PROPERTY_TYPE_UNKNOWN.  Methods the samples do not use
+ * return a default value.
+ */
+public final class StubMessage implements InvocationHandler
+{
+    private final Map<String, Object> properties = new LinkedHashMap<>();
+    private String text;
+
+    private StubMessage(String text)
+    {
+        this.text = text;
+    }
+
+    /**
+     * Creates an empty message
+     */
+    public static TextMessage create()
+    {
+        return create(null);
+    }
+
+    /**
+     * Creates a message with the given body
+     */
+    public static TextMessage create(String text)
+    {
+        return (TextMessage) Proxy.newProxyInstance(
+                StubMessage.class.getClassLoader(),
+                new Class<?>[] { TextMessage.class },
+                new StubMessage(text));
+    }
+
+    /**
+     * Returns the properties and body of a message created by this class
+     * as a single string, with properties sorted by name and tagged with
+     * their type, so results can be compared with equals.
+     */
+    public static String describe(Message message)
+    {
+        StubMessage stub = (StubMessage) Proxy.getInvocationHandler(message);
+        synchronized (stub) {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, Object> entry : new TreeMap<>(stub.properties).entrySet()) {
+                Object value = entry.getValue();
+                sb.append(entry.getKey()).append('=').append(value)
+                        .append(" (").append(value.getClass().getSimpleName()).append(")\n");
+            }
+            if (stub.text != null) {
+                sb.append("body=").append(stub.text);
+            }
+            return sb.toString();
+        }
+    }
+
+    @Override
+    public synchronized Object invoke(Object proxy, Method method, Object[] args)
+    {
+        String name = method.getName();
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return describe((Message) proxy);
+            case "getPropertyNames":
+                return properties.keySet().toArray(new String[0]);
+            case "getPropertyType":
+                return typeOf(properties.get((String) args[0]));
+            case "setProperty":
+                properties.put((String) args[0], args[1]);
+                return null;
+            case "getText":
+                return text;
+            case "setText":
+                text = (String) args[0];
+                return null;
+            case "appendText":
+                text = text == null ? (String) args[0] : text + args[0];
+                return null;
+            default:
+                break;
+        }
+        if (name.startsWith("get") && name.endsWith("Property") && args != null) {
+            return convert(properties.get((String) args[0]), method.getReturnType());
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    private static int typeOf(Object value)
+    {
+        if (value instanceof String) {
+            return Message.PROPERTY_TYPE_STRING;
+        } else if (value instanceof Integer) {
+            return Message.PROPERTY_TYPE_INT;
+        } else if (value instanceof Long) {
+            return Message.PROPERTY_TYPE_LONG;
+        } else if (value instanceof Boolean) {
+            return Message.PROPERTY_TYPE_BOOLEAN;
+        } else if (value instanceof Double) {
+            return Message.PROPERTY_TYPE_DOUBLE;
+        } else if (value instanceof BigDecimal) {
+            return Message.PROPERTY_TYPE_DECIMAL;
+        } else if (value instanceof Byte) {
+            return Message.PROPERTY_TYPE_BYTE;
+        }
+        return Message.PROPERTY_TYPE_UNKNOWN;
+    }
+
+    private static Object convert(Object value, Class<?> type)
+    {
+        if (value == null) {
+            return defaultValue(type);
+        }
+        if (type == String.class) {
+            return String.valueOf(value);
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (type == int.class) {
+                return number.intValue();
+            } else if (type == long.class) {
+                return number.longValue();
+            } else if (type == double.class) {
+                return number.doubleValue();
+            } else if (type == byte.class) {
+                return number.byteValue();
+            } else if (type == BigDecimal.class) {
+                return value instanceof BigDecimal ? value : new BigDecimal(value.toString());
+            }
+        }
+        return value;
+    }
+
+    private static Object defaultValue(Class<?> type)
+    {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0.0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == float.class) {
+            return 0.0f;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == char.class) {
+            return '\0';
+        }
+        return null;
+    }
+}
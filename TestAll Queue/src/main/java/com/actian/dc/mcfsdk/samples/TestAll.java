@@ -44,6 +44,8 @@ import java.net.URL;
 public class TestAll
 extends QueueComponentBase
 {
+    private static volatile String componentLocalClassPath;
+
     /**
      * components are required to provide a null constructor
      */
@@ -158,16 +160,8 @@ extends QueueComponentBase
             // set classpath property
             try
             {
-                URL[] urls = ((ComponentClassLoader)
-                        TestAll.class.getClassLoader()).getURLs();
-                StringBuilder buffer = new StringBuilder();
-                for( int j = 0; j < urls.length; j++ ) {
-                    buffer.append( j > 0 ? ";" : "" );
-                    buffer.append(urls[j].toString());
-                }
-                
                 message.setProperty("componentLocalClassPath",
-                        buffer.toString());
+                        getComponentLocalClassPath());
             }
             catch( CosmosException exc )
             {
@@ -279,6 +273,29 @@ extends QueueComponentBase
         return code;
     }
 
+    /**
+     * The component class loader is shared by every component in the
+     * deployment package and its URLs do not change, so the classpath
+     * string is built on first use and reused for every message.
+     */
+    private static String getComponentLocalClassPath() throws CosmosException
+    {
+        String classPath = componentLocalClassPath;
+        if (classPath == null)
+        {
+            URL[] urls = ((ComponentClassLoader)
+                    TestAll.class.getClassLoader()).getURLs();
+            StringBuilder buffer = new StringBuilder();
+            for( int j = 0; j < urls.length; j++ ) {
+                buffer.append( j > 0 ? ";" : "" );
+                buffer.append(urls[j].toString());
+            }
+            classPath = buffer.toString();
+            componentLocalClassPath = classPath;
+        }
+        return classPath;
+    }
+
     // log an informative message to DataConnect
     private void info(String infoMsg)
     {
@@ -0,0 +1,61 @@
+@echo off
+rem
+rem appcds.cmd
+rem
+rem Copyright (c) 2022 by Actian Corp.
+rem
+rem Licensed under the Apache License, Version 2.0 (the "License");
+rem you may not use this file except in compliance with the License.
+rem You may obtain a copy of the License at
+rem
+rem   http://www.apache.org/licenses/LICENSE-2.0
+rem
+rem Unless required by applicable law or agreed to in writing, software
+rem distributed under the License is distributed on an "AS IS" BASIS,
+rem WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+rem See the License for the specific language governing permissions and
+rem limitations under the License.
+rem
+rem Creates a dynamic class data sharing (AppCDS) archive for the engine JVM by
+rem running a training job with -XX:ArchiveClassesAtExit.  The archive holds the
+rem classes loaded during the job, including the component classes loaded by the
+rem component class loader.  The engine's JVM must be JDK 13 or later.
+rem
+rem Usage: appcds.cmd <archive.jsa> <djengine arguments>
+rem
+
+setlocal
+if "%~2"=="" (
+    echo Usage: %~nx0 ^<archive.jsa^> ^<djengine arguments^> 1>&2
+    exit /b 2
+)
+
+set "ARCHIVE=%~f1"
+shift
+set "ARGS="
+:args
+if "%~1"=="" goto run
+set ARGS=%ARGS% %1
+shift
+goto args
+
+:run
+if exist "%ARCHIVE%" del "%ARCHIVE%"
+
+rem the engine creates its JVM through JNI, which reads JAVA_TOOL_OPTIONS
+if defined JAVA_TOOL_OPTIONS (
+    set "JAVA_TOOL_OPTIONS=%JAVA_TOOL_OPTIONS% -XX:ArchiveClassesAtExit=%ARCHIVE%"
+) else (
+    set "JAVA_TOOL_OPTIONS=-XX:ArchiveClassesAtExit=%ARCHIVE%"
+)
+djengine%ARGS%
+set RC=%ERRORLEVEL%
+
+if not exist "%ARCHIVE%" (
+    echo No archive was written to %ARCHIVE%. Check that the engine JVM is JDK 13 or later 1>&2
+    echo and that the job exits normally. 1>&2
+    exit /b 1
+)
+echo Wrote %ARCHIVE% (training job exit code %RC%). Run the engine with
+echo   set JAVA_TOOL_OPTIONS=-XX:SharedArchiveFile=%ARCHIVE%
+endlocal
@@ -0,0 +1,48 @@
+#!/bin/sh
+#
+# appcds.sh
+#
+# Copyright (c) 2022 by Actian Corp.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#   http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+# Creates a dynamic class data sharing (AppCDS) archive for the engine JVM by
+# running a training job with -XX:ArchiveClassesAtExit.  The archive holds the
+# classes loaded during the job, including the component classes loaded by the
+# component class loader.  The engine's JVM must be JDK 13 or later.
+#
+# Usage: appcds.sh <archive.jsa> <djengine arguments>
+#
+
+if [ $# -lt 2 ]; then
+    echo "Usage: $0 <archive.jsa> <djengine arguments>" >&2
+    exit 2
+fi
+
+ARCHIVE=$1
+shift
+rm -f "$ARCHIVE"
+
+# the engine creates its JVM through JNI, which reads JAVA_TOOL_OPTIONS
+JAVA_TOOL_OPTIONS="${JAVA_TOOL_OPTIONS:+$JAVA_TOOL_OPTIONS }-XX:ArchiveClassesAtExit=$ARCHIVE"
+export JAVA_TOOL_OPTIONS
+djengine "$@"
+RC=$?
+
+if [ ! -f "$ARCHIVE" ]; then
+    echo "No archive was written to $ARCHIVE. Check that the engine JVM is JDK 13 or later" >&2
+    echo "and that the job exits normally." >&2
+    exit 1
+fi
+echo "Wrote $ARCHIVE (training job exit code $RC). Run the engine with"
+echo "  JAVA_TOOL_OPTIONS=-XX:SharedArchiveFile=$ARCHIVE"